@@ -0,0 +1,159 @@
+/*
+	Launch4j (http://launch4j.sourceforge.net/)
+	Cross-platform Java application wrapper for creating Windows native executables.
+
+	Copyright (c) 2004, 2015 Grzegorz Kowal
+	All rights reserved.
+
+	Redistribution and use in source and binary forms, with or without modification,
+	are permitted provided that the following conditions are met:
+	
+	1. Redistributions of source code must retain the above copyright notice,
+	   this list of conditions and the following disclaimer.
+	
+	2. Redistributions in binary form must reproduce the above copyright notice,
+	   this list of conditions and the following disclaimer in the documentation
+	   and/or other materials provided with the distribution.
+	
+	3. Neither the name of the copyright holder nor the names of its contributors
+	   may be used to endorse or promote products derived from this software without
+	   specific prior written permission.
+	
+	THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+	AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+	THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+	ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+	FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+	(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+	LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+	AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+	OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+	OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package net.sf.launch4j;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.sf.launch4j.config.BuildContext;
+import net.sf.launch4j.config.ConfigPersisterException;
+
+/**
+ * Builds several configurations concurrently in one JVM. Each build gets its
+ * own BuildContext and log, the log is written out when the build finishes.
+ */
+public class BatchBuilder {
+	private final Log _log;
+	private final int _threads;
+
+	public BatchBuilder(Log log, int threads) {
+		_log = log;
+		_threads = threads;
+	}
+
+	/**
+	 * Replaces directories with the *.xml files they contain, sorted by name.
+	 */
+	public static List<File> findConfigs(List<String> paths) {
+		List<File> configs = new ArrayList<File>();
+		for (String path : paths) {
+			File f = new File(path);
+			if (f.isDirectory()) {
+				File[] xmls = f.listFiles(new FileFilter() {
+					public boolean accept(File pathname) {
+						return pathname.isFile()
+								&& pathname.getName().toLowerCase().endsWith(".xml");
+					}
+				});
+				if (xmls != null) {
+					Arrays.sort(xmls);
+					configs.addAll(Arrays.asList(xmls));
+				}
+			} else {
+				configs.add(f);
+			}
+		}
+		return configs;
+	}
+
+	/**
+	 * @return true if all configurations were built successfully.
+	 */
+	public boolean build(List<File> configs) throws BuilderException {
+		if (configs.isEmpty()) {
+			_log.append(Messages.getString("BatchBuilder.no.configs"));
+			return false;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(_threads, configs.size())));
+		CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+		for (final File config : configs) {
+			completion.submit(new Callable<Result>() {
+				public Result call() {
+					return build(config);
+				}
+			});
+		}
+
+		int built = 0;
+		try {
+			for (int i = 0; i < configs.size(); i++) {
+				Result result = completion.take().get();
+				_log.append(Messages.getString("BatchBuilder.config", result.config.getPath()));
+				result.log.writeTo(_log);
+				if (result.success) {
+					built++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuilderException(e);
+		} catch (ExecutionException e) {
+			throw new BuilderException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		_log.append(Messages.getString("BatchBuilder.summary",
+				String.valueOf(built), String.valueOf(configs.size())));
+		return built == configs.size();
+	}
+
+	private Result build(File config) {
+		Log log = Log.getBufferedLog();
+		try {
+			new Builder(log, BuildContext.load(config)).build();
+			return new Result(config, log, true);
+		} catch (ConfigPersisterException e) {
+			log.append(e.getMessage());
+		} catch (BuilderException e) {
+			log.append(e.getMessage());
+		} catch (RuntimeException e) {
+			log.append(e.toString());
+		}
+		return new Result(config, log, false);
+	}
+
+	private static class Result {
+		final File config;
+		final Log log;
+		final boolean success;
+
+		Result(File config, Log log, boolean success) {
+			this.config = config;
+			this.log = log;
+			this.success = success;
+		}
+	}
+}
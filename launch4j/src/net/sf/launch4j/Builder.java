@@ -36,15 +36,21 @@
  */
 package net.sf.launch4j;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
 
 import net.sf.launch4j.binding.InvariantViolationException;
+import net.sf.launch4j.config.BuildContext;
 import net.sf.launch4j.config.Config;
 import net.sf.launch4j.config.ConfigPersister;
 
@@ -52,80 +58,93 @@ import net.sf.launch4j.config.ConfigPersister;
  * @author Copyright (C) 2005 Grzegorz Kowal
  */
 public class Builder {
+	private static final Object HEAD_LOCK = new Object();
+	private static final long WRAP_CHUNK = 16 * 1024 * 1024;
+
 	private final Log _log;
 	private final File _basedir;
+	private final BuildContext _context;
 
+	/**
+	 * Builds the configuration edited in the GUI (held by ConfigPersister).
+	 */
 	public Builder(Log log) {
-		_log = log;
-		_basedir = Util.getJarBasedir();
+		this(log, Util.getJarBasedir());
 	}
 
 	public Builder(Log log, File basedir) {
 		_log = log;
 		_basedir = basedir;
+		_context = null;
+	}
+
+	/**
+	 * Builds the configuration of the given context, several builders
+	 * with their own contexts can run at the same time.
+	 */
+	public Builder(Log log, BuildContext context) {
+		_log = log;
+		_basedir = Util.getJarBasedir();
+		_context = context;
 	}
 
 	/**
 	 * @return Output file path.
 	 */
 	public File build() throws BuilderException {
-		final Config c = ConfigPersister.getInstance().getConfig();
+		final BuildContext ctx = (_context != null)
+				? _context : ConfigPersister.getInstance().getBuildContext();
+		final Config c = ctx.getConfig();
 		try {
-			c.validate();
+			ctx.validate();
 		} catch (InvariantViolationException e) {
 			throw new BuilderException(e.getMessage());
 		}
 		File rc = null;
 		File ro = null;
 		File outfile = null;
-		FileInputStream is = null;
-		FileOutputStream os = null;
-		final RcBuilder rcb = new RcBuilder();
+		final RcBuilder rcb = new RcBuilder(ctx);
 		try {
 			if (c.isJniApplication()) {
 				_log.append("WARNING: Some features are not implemented in JNI headers, see documentation.");
 			}
 
-			rc = rcb.build(c);
-			ro = Util.createTempFile("o");
-			outfile = ConfigPersister.getInstance().getOutputFile();
-
-			Cmd resCmd = new Cmd(_basedir);
-			resCmd.addExe("windres")
-					.add(Util.WINDOWS_OS ? "--preprocessor=type" : "--preprocessor=cat")
-					.add("-J rc -O coff -F pe-i386")
-					.addAbsFile(rc)
-					.addAbsFile(ro);
-			_log.append(Messages.getString("Builder.compiling.resources"));
-			resCmd.exec(_log);
-
-			Cmd ldCmd = new Cmd(_basedir);
-			ldCmd.addExe("ld")
-					.add("-mi386pe")
-					.add("--oformat pei-i386")
-					.add("--dynamicbase")
-					.add("--nxcompat")
-					.add("--no-seh")
-					.add(c.isGuiApplication() ? "--subsystem windows" : "--subsystem console")
-					.add("-s")		// strip symbols
-					.addFiles(c.getHeaderObjects())
-					.addAbsFile(ro)
-					.addFiles(c.getLibs())
-					.add("-o")
-					.addAbsFile(outfile);
-			_log.append(Messages.getString("Builder.linking"));
-			ldCmd.exec(_log);
+			outfile = ctx.getOutputFile();
+
+			// -Dlaunch4j.prelinked=true links the header once and only patches
+			// the resources into a copy of it
+			if (Boolean.getBoolean("launch4j.prelinked")) {
+				if (Boolean.getBoolean("launch4j.windres")) {
+					_log.append(Messages.getString("Builder.windres.ignored"));
+				}
+				File head = getPrelinkedHead(ctx, c);
+				_log.append(Messages.getString("Builder.adding.resources"));
+				rcb.getResources().writePe(head, outfile);
+			} else {
+				_log.append(Messages.getString("Builder.compiling.resources"));
+
+				// -Dlaunch4j.windres=true compiles a .rc file with windres as before
+				if (Boolean.getBoolean("launch4j.windres")) {
+					rc = rcb.build();
+					ro = Util.createTempFile("o", ctx.getTmpdir());
+					Cmd resCmd = new Cmd(_basedir, ctx.getBindir());
+					resCmd.addExe("windres")
+							.add(Util.WINDOWS_OS ? "--preprocessor=type" : "--preprocessor=cat")
+							.add("-J rc -O coff -F pe-i386")
+							.addAbsFile(rc)
+							.addAbsFile(ro);
+					resCmd.exec(_log);
+				} else {
+					ro = rcb.compile();
+				}
+
+				_log.append(Messages.getString("Builder.linking"));
+				link(ctx, c, ro, outfile);
+			}
 
 			if (!c.isDontWrapJar()) {
 				_log.append(Messages.getString("Builder.wrapping"));
-				int len;
-				byte[] buffer = new byte[1024];
-				is = new FileInputStream(Util.getAbsoluteFile(
-						ConfigPersister.getInstance().getConfigPath(),	c.getJar()));
-				os = new FileOutputStream(outfile, true);
-				while ((len = is.read(buffer)) > 0) {
-					os.write(buffer, 0, len);
-				}
+				wrap(ctx.getAbsoluteFile(c.getJar()), outfile);
 			}
 			_log.append(Messages.getString("Builder.success") + outfile.getPath());
 			return outfile;
@@ -148,12 +167,133 @@ public class Builder {
 			}
 			throw new BuilderException(e);
 		} finally {
-			Util.close(is);
-			Util.close(os);
 			Util.delete(rc);
 			Util.delete(ro);
 		}
 	}
+
+	/**
+	 * Appends the jar with channel transfers, which the OS can do without
+	 * copying through the Java heap. Large jars report progress per chunk.
+	 */
+	private void wrap(File jar, File outfile) throws IOException {
+		FileInputStream is = null;
+		FileOutputStream os = null;
+
+		try {
+			is = new FileInputStream(jar);
+			os = new FileOutputStream(outfile, true);
+			FileChannel in = is.getChannel();
+			FileChannel out = os.getChannel();
+			long size = in.size();
+			long position = 0;
+
+			while (position < size) {
+				long n = in.transferTo(position, Math.min(WRAP_CHUNK, size - position), out);
+
+				if (n <= 0) {
+					throw new EOFException(jar.getPath());
+				}
+
+				position += n;
+
+				if (size > WRAP_CHUNK) {
+					_log.append(Messages.getString("Builder.wrapping.progress",
+							String.valueOf(position * 100 / size)));
+				}
+			}
+		} finally {
+			Util.close(is);
+			Util.close(os);
+		}
+	}
+
+	private void link(BuildContext ctx, Config c, File ro, File outfile)
+			throws ExecException {
+		Cmd ldCmd = new Cmd(_basedir, ctx.getBindir());
+		ldCmd.addExe("ld")
+				.add("-mi386pe")
+				.add("--oformat pei-i386")
+				.add("--dynamicbase")
+				.add("--nxcompat")
+				.add("--no-seh")
+				.add(c.isGuiApplication() ? "--subsystem windows" : "--subsystem console")
+				.add("-s")		// strip symbols
+				.addFiles(c.getHeaderObjects());
+
+		if (ro != null) {
+			ldCmd.addAbsFile(ro);
+		}
+
+		ldCmd.addFiles(c.getLibs())
+				.add("-o")
+				.addAbsFile(outfile);
+		ldCmd.exec(_log);
+	}
+
+	/**
+	 * Header linked without resources, kept in the launch4j-heads directory
+	 * under the temporary file directory. The file name is a digest of
+	 * the linker and its input, so changed objects, libraries or another
+	 * toolchain are linked again.
+	 */
+	private File getPrelinkedHead(BuildContext ctx, Config c)
+			throws IOException, ExecException {
+		StringBuilder key = new StringBuilder(c.isGuiApplication() ? "gui" : "console");
+		key.append('|').append(new Cmd(_basedir, ctx.getBindir()).getExe("ld").getAbsolutePath());
+		List<String> files = new ArrayList<String>(c.getHeaderObjects());
+		files.addAll(c.getLibs());
+
+		for (String f : files) {
+			File file = new File(_basedir, f);
+			key.append('|').append(file.getAbsolutePath())
+					.append('|').append(file.length())
+					.append('|').append(file.lastModified());
+		}
+
+		String tmpdir = (ctx.getTmpdir() != null)
+				? ctx.getTmpdir().getPath() : System.getProperty("launch4j.tmpdir");
+		File dir = new File((tmpdir != null) ? tmpdir : System.getProperty("java.io.tmpdir"),
+				"launch4j-heads");
+		File head = new File(dir, "head-" + digest(key.toString()) + ".exe");
+
+		synchronized (HEAD_LOCK) {
+			if (!head.isFile()) {
+				if (!dir.isDirectory() && !dir.mkdirs()) {
+					throw new IOException(Messages.getString("Builder.head.cache",
+							dir.getPath()));
+				}
+
+				// not Util.createTempFile, a space in the default temporary
+				// directory is fine here, the head is never passed to windres
+				File tmp = File.createTempFile("launch4j", ".tmp", dir);
+				try {
+					_log.append(Messages.getString("Builder.linking.head"));
+					link(ctx, c, null, tmp);
+
+					if (!tmp.renameTo(head) && !head.isFile()) {
+						throw new IOException(Messages.getString("Builder.head.cache",
+								head.getPath()));
+					}
+				} finally {
+					Util.delete(tmp);
+				}
+			}
+		}
+
+		return head;
+	}
+
+	private static String digest(String s) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			return String.format("%040x", new BigInteger(1, md.digest(s.getBytes("UTF-8"))));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
 }
 
 class Cmd {
@@ -161,15 +301,18 @@ class Cmd {
 	private final File _basedir;
 	private final File _bindir;
 
-	public Cmd(File basedir) {
+	/**
+	 * @param bindir tool directory, null to use the launch4j.bindir property.
+	 */
+	public Cmd(File basedir, File bindir) {
 		_basedir = basedir;
-		String path = System.getProperty("launch4j.bindir");
+		String path = (bindir != null) ? bindir.getPath() : System.getProperty("launch4j.bindir");
 
 		if (path == null) {
 			_bindir = new File(basedir, "bin");
 		} else {
-			File bindir = new File(path);
-			_bindir = bindir.isAbsolute() ? bindir : new File(basedir, path);
+			File dir = new File(path);
+			_bindir = dir.isAbsolute() ? dir : new File(basedir, path);
 		}
 	}
 
@@ -194,12 +337,16 @@ class Cmd {
 	}
 
 	public Cmd addExe(String pathname) {
+		_cmd.add(getExe(pathname).getPath());
+		return this;
+	}
+
+	public File getExe(String pathname) {
 		if (Util.WINDOWS_OS) {
 			pathname += ".exe";
 		}
 
-		_cmd.add(new File(_bindir, pathname).getPath());
-		return this;
+		return new File(_bindir, pathname);
 	}
 
 	public Cmd addFiles(List<String> files) {
@@ -36,6 +36,9 @@
  */
 package net.sf.launch4j;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
 
@@ -49,6 +52,13 @@ public abstract class Log {
 	public abstract void clear();
 	public abstract void append(String line);
 
+	/**
+	 * Writes the collected lines to another log, only buffered logs
+	 * keep their output.
+	 */
+	public void writeTo(Log log) {
+	}
+
 	public static Log getConsoleLog() {
 		return _consoleLog;
 	}
@@ -60,6 +70,10 @@ public abstract class Log {
 	public static Log getSwingLog(JTextArea textArea) {
 		return new SwingLog(textArea);
 	}
+
+	public static Log getBufferedLog() {
+		return new BufferedLog();
+	}
 }
 
 class ConsoleLog extends Log {
@@ -82,6 +96,28 @@ class AntLog extends Log {
 	}
 }
 
+/**
+ * Collects the output of one build, so that concurrent builds
+ * can be written out one after another instead of interleaved.
+ */
+class BufferedLog extends Log {
+	private final List<String> _lines = new ArrayList<String>();
+
+	public synchronized void clear() {
+		_lines.clear();
+	}
+
+	public synchronized void append(String line) {
+		_lines.add(line);
+	}
+
+	public synchronized void writeTo(Log log) {
+		for (String line : _lines) {
+			log.append(line);
+		}
+	}
+}
+
 class SwingLog extends Log {
 	private final JTextArea _textArea;
 
@@ -37,8 +37,11 @@
 package net.sf.launch4j;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import net.sf.launch4j.config.BuildContext;
 import net.sf.launch4j.config.ConfigPersister;
 import net.sf.launch4j.formimpl.MainFrame;
 
@@ -57,14 +60,37 @@ public class Main {
 			if (args.length == 0) {
 				ConfigPersister.getInstance().createBlank();
 				MainFrame.createInstance();
-			} else if (args.length == 1 && !args[0].startsWith("-")) {
-				ConfigPersister.getInstance().load(new File(args[0]));
-				Builder b = new Builder(Log.getConsoleLog());
+			} else if (args.length == 1 && !args[0].startsWith("-")
+					&& !new File(args[0]).isDirectory()) {
+				Builder b = new Builder(Log.getConsoleLog(),
+						BuildContext.load(new File(args[0])));
 				b.build();
 			} else {
-				System.out.println(_description
-						+ Messages.getString("Main.usage")
-						+ ": launch4j config.xml");
+				int threads = Runtime.getRuntime().availableProcessors();
+				List<String> paths = new ArrayList<String>();
+				boolean valid = true;
+				for (String arg : args) {
+					if (arg.startsWith("-j")) {
+						try {
+							threads = Integer.parseInt(arg.substring(2));
+						} catch (NumberFormatException e) {
+							valid = false;
+						}
+					} else if (arg.startsWith("-")) {
+						valid = false;
+					} else {
+						paths.add(arg);
+					}
+				}
+				if (!valid || threads < 1 || paths.isEmpty()) {
+					System.out.println(_description
+							+ Messages.getString("Main.usage")
+							+ ": launch4j config.xml\n"
+							+ Messages.getString("Main.batch.usage"));
+				} else if (!new BatchBuilder(Log.getConsoleLog(), threads)
+						.build(BatchBuilder.findConfigs(paths))) {
+					System.exit(1);
+				}
 			}
 		} catch (Exception e) {
 			Log.getConsoleLog().append(e.getMessage());
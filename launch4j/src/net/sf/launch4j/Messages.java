@@ -69,8 +69,10 @@ public class Messages {
 
 	public static String getString(String key, Object[] args) {
 		try {
-			FORMATTER.applyPattern(RESOURCE_BUNDLE.getString(key));
-			return FORMATTER.format(args);
+			synchronized (FORMATTER) {	// shared by concurrent builds
+				FORMATTER.applyPattern(RESOURCE_BUNDLE.getString(key));
+				return FORMATTER.format(args);
+			}
 		} catch (MissingResourceException e) {
 			return '!' + key + '!';
 		}
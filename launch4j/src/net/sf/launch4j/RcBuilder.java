@@ -41,11 +41,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import net.sf.launch4j.config.BuildContext;
 import net.sf.launch4j.config.CharsetID;
 import net.sf.launch4j.config.Config;
-import net.sf.launch4j.config.ConfigPersister;
 import net.sf.launch4j.config.Jre;
 import net.sf.launch4j.config.Msg;
 import net.sf.launch4j.config.Splash;
@@ -109,6 +112,14 @@ public class RcBuilder {
 	public static final int INSTANCE_ALREADY_EXISTS_MSG = 105;
 
 	private final StringBuffer _sb = new StringBuffer();
+	private final ResourceSection _resources
+			= new ResourceSection(LANG_NEUTRAL | SUBLANG_DEFAULT << 10);
+	private final BuildContext _context;
+	private boolean _composed;
+
+	public RcBuilder(BuildContext context) {
+		_context = context;
+	}
 	
 	public String getContent() {
 		return _sb.toString();
@@ -118,7 +129,47 @@ public class RcBuilder {
 		return _sb.toString().split("\n")[line - 1];
 	}
 
-	public File build(Config c) throws IOException {
+	/**
+	 * Writes the .rc file for windres.
+	 */
+	public File build() throws IOException {
+		compose();
+		File file = Util.createTempFile("rc", _context.getTmpdir());
+
+		if ("MS932".equals(System.getProperty("file.encoding"))) {
+			writeKanjiResourceFile(file);
+		} else {
+			writeResourceFile(file);
+		}
+
+		return file;
+	}
+
+	/**
+	 * Writes the resources straight into a COFF object, without windres.
+	 */
+	public File compile() throws IOException {
+		compose();
+		File file = Util.createTempFile("o", _context.getTmpdir());
+		_resources.writeCoff(file);
+		return file;
+	}
+
+	/**
+	 * Resources for patching into a prelinked header.
+	 */
+	public ResourceSection getResources() throws IOException {
+		compose();
+		return _resources;
+	}
+
+	private void compose() throws IOException {
+		if (_composed) {
+			return;
+		}
+
+		_composed = true;
+		final Config c = _context.getConfig();
 		_sb.append("LANGUAGE ");
 		_sb.append(LANG_NEUTRAL);
 		_sb.append(", ");
@@ -161,16 +212,6 @@ public class RcBuilder {
 		if (c.isDontWrapJar() && c.getJar() != null) {
 			addWindowsPath(JAR, c.getJar().getPath());
 		}
-		
-		File file = Util.createTempFile("rc");
-
-		if ("MS932".equals(System.getProperty("file.encoding"))) {
-			writeKanjiResourceFile(file);
-		} else {
-			writeResourceFile(file);
-		}
-
-		return file;
 	}
 	
 	private void writeResourceFile(File file) throws IOException {
@@ -234,18 +275,23 @@ public class RcBuilder {
 		_sb.append("\"\n" +
 				"  {\n");
 
-		addVerBlockValue("CompanyName", v.getCompanyName());
-		addVerBlockValue("FileDescription", v.getFileDescription());
-		addVerBlockValue("FileVersion", v.getTxtFileVersion());
-		addVerBlockValue("InternalName", v.getInternalName());
-		addVerBlockValue("LegalCopyright", v.getCopyright());
-		addVerBlockValue("LegalTrademarks", v.getTrademarks());
-		addVerBlockValue("OriginalFilename", v.getOriginalFilename());
-		addVerBlockValue("ProductName", v.getProductName());
-		addVerBlockValue("ProductVersion", v.getTxtProductVersion());
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		addVerBlockValue(values, "CompanyName", v.getCompanyName());
+		addVerBlockValue(values, "FileDescription", v.getFileDescription());
+		addVerBlockValue(values, "FileVersion", v.getTxtFileVersion());
+		addVerBlockValue(values, "InternalName", v.getInternalName());
+		addVerBlockValue(values, "LegalCopyright", v.getCopyright());
+		addVerBlockValue(values, "LegalTrademarks", v.getTrademarks());
+		addVerBlockValue(values, "OriginalFilename", v.getOriginalFilename());
+		addVerBlockValue(values, "ProductName", v.getProductName());
+		addVerBlockValue(values, "ProductVersion", v.getTxtProductVersion());
 		_sb.append("  }\n }\nBLOCK \"VarFileInfo\"\n{\nVALUE \"Translation\", ");
 		_sb.append(String.format("0x%04X, 0x%04X", v.getLanguage().getId(), CharsetID.MULTILINGUAL.getId()));
 		_sb.append("\n}\n}");
+
+		_resources.addVersionInfo(1, v.getFileVersion(), v.getProductVersion(),
+				0x40000, 1, v.getLanguage().getId() << 16 | CharsetID.MULTILINGUAL.getId(),
+				values);
 	}
 
 	private void addJre(Jre jre) {
@@ -270,7 +316,7 @@ public class RcBuilder {
 		addText(JVM_OPTIONS, options.toString());
 	}
 	
-	private void addSplash(Splash splash) {
+	private void addSplash(Splash splash) throws IOException {
 		if (splash == null) {
 			return;
 		}
@@ -318,6 +364,7 @@ public class RcBuilder {
 		_sb.append(" RCDATA BEGIN \"");
 		_sb.append(escape(text));
 		_sb.append("\\0\" END\n");
+		_resources.add(ResourceSection.RT_RCDATA, id, encode(text.replace("\n", "\r\n")));
 	}
 
 	private void addTrue(int id, boolean value) {
@@ -345,42 +392,43 @@ public class RcBuilder {
 		_sb.append(path.replaceAll("\\\\", "\\\\\\\\")
 				.replaceAll("/", "\\\\\\\\"));
 		_sb.append("\\0\" END\n");
+		_resources.add(ResourceSection.RT_RCDATA, id, encode(path.replace('/', '\\')));
 	}
 
-	private void addManifest(int id, File manifest) {
+	private void addManifest(int id, File manifest) throws IOException {
 		if (manifest == null || manifest.getPath().equals("")) {
 			return;
 		}
 
 		_sb.append(id);
 		_sb.append(" 24 \"");
-		_sb.append(getPath(Util.getAbsoluteFile(
-				ConfigPersister.getInstance().getConfigPath(), manifest)));
+		_sb.append(getPath(_context.getAbsoluteFile(manifest)));
 		_sb.append("\"\n");
+		_resources.addFile(ResourceSection.RT_MANIFEST, id, _context.getAbsoluteFile(manifest));
 	}
 
-	private void addIcon(int id, File icon) {
+	private void addIcon(int id, File icon) throws IOException {
 		if (icon == null || icon.getPath().equals("")) {
 			return;
 		}
 
 		_sb.append(id);
 		_sb.append(" ICON DISCARDABLE \"");
-		_sb.append(getPath(Util.getAbsoluteFile(
-				ConfigPersister.getInstance().getConfigPath(), icon)));
+		_sb.append(getPath(_context.getAbsoluteFile(icon)));
 		_sb.append("\"\n");
+		_resources.addIcon(id, _context.getAbsoluteFile(icon));
 	}
 
-	private void addBitmap(int id, File bitmap) {
+	private void addBitmap(int id, File bitmap) throws IOException {
 		if (bitmap == null) {
 			return;
 		}
 
 		_sb.append(id);
 		_sb.append(" BITMAP \"");
-		_sb.append(getPath(Util.getAbsoluteFile(
-				ConfigPersister.getInstance().getConfigPath(), bitmap)));
+		_sb.append(getPath(_context.getAbsoluteFile(bitmap)));
 		_sb.append("\"\n");
+		_resources.addBitmap(id, _context.getAbsoluteFile(bitmap));
 	}
 	
 	private String getPath(File f) {
@@ -395,7 +443,7 @@ public class RcBuilder {
 		}
 	}
 	
-	private void addVerBlockValue(String key, String value) {
+	private void addVerBlockValue(Map<String, String> values, String key, String value) {
 		_sb.append("   VALUE \"");
 		_sb.append(key);
 		_sb.append("\", \"");
@@ -405,6 +453,20 @@ public class RcBuilder {
 		}
 
 		_sb.append("\"\n");
+		values.put(key, value != null ? value.replace("\n", "\r\n") : "");
+	}
+
+	/**
+	 * RCDATA strings are narrow, windres copies the bytes of the .rc file.
+	 */
+	private byte[] encode(String text) {
+		String charset = "MS932".equals(System.getProperty("file.encoding"))
+				? "MS932" : "ISO-8859-1";
+		try {
+			return (text + '\0').getBytes(charset);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	private String escape(String text) {
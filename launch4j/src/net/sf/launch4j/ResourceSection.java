@@ -0,0 +1,578 @@
+/*
+	Launch4j (http://launch4j.sourceforge.net/)
+	Cross-platform Java application wrapper for creating Windows native executables.
+
+	Copyright (c) 2004, 2015 Grzegorz Kowal
+	All rights reserved.
+
+	Redistribution and use in source and binary forms, with or without modification,
+	are permitted provided that the following conditions are met:
+	
+	1. Redistributions of source code must retain the above copyright notice,
+	   this list of conditions and the following disclaimer.
+	
+	2. Redistributions in binary form must reproduce the above copyright notice,
+	   this list of conditions and the following disclaimer in the documentation
+	   and/or other materials provided with the distribution.
+	
+	3. Neither the name of the copyright holder nor the names of its contributors
+	   may be used to endorse or promote products derived from this software without
+	   specific prior written permission.
+	
+	THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+	AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+	THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+	ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+	FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+	(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+	LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+	AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+	OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+	OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package net.sf.launch4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resources of the executable laid out as a PE .rsrc section, written
+ * in-process as an object for the linker or straight into a linked header.
+ */
+public class ResourceSection {
+
+	// winuser.h
+	public static final int RT_ICON = 3;
+	public static final int RT_BITMAP = 2;
+	public static final int RT_RCDATA = 10;
+	public static final int RT_GROUP_ICON = 14;
+	public static final int RT_VERSION = 16;
+	public static final int RT_MANIFEST = 24;
+
+	// winnt.h
+	private static final int IMAGE_FILE_MACHINE_I386 = 0x14c;
+	private static final int IMAGE_FILE_LINE_NUMS_STRIPPED = 0x0004;
+	private static final int IMAGE_FILE_32BIT_MACHINE = 0x0100;
+	private static final int IMAGE_SCN_CNT_INITIALIZED_DATA = 0x00000040;
+	private static final int IMAGE_SCN_ALIGN_4BYTES = 0x00300000;
+	private static final int IMAGE_SCN_MEM_READ = 0x40000000;
+	private static final int IMAGE_SCN_MEM_WRITE = 0x80000000;
+	private static final int IMAGE_REL_I386_DIR32NB = 7;
+	private static final int IMAGE_SYM_CLASS_STATIC = 3;
+	private static final int IMAGE_RESOURCE_DATA_IS_DIRECTORY = 0x80000000;
+	private static final int IMAGE_DOS_SIGNATURE = 0x5a4d;
+	private static final int IMAGE_NT_SIGNATURE = 0x4550;
+	private static final int IMAGE_NT_OPTIONAL_HDR32_MAGIC = 0x10b;
+	private static final int IMAGE_DIRECTORY_ENTRY_RESOURCE = 2;
+
+	private static final int FILE_HEADER_SIZE = 20;
+	private static final int SECTION_HEADER_SIZE = 40;
+	private static final int DIRECTORY_SIZE = 16;
+	private static final int DIRECTORY_ENTRY_SIZE = 8;
+	private static final int DATA_ENTRY_SIZE = 16;
+	private static final int BITMAP_FILE_HEADER_SIZE = 14;
+
+	private final int _language;
+
+	/** type -> id -> data, directories have to be sorted by id. */
+	private final Map<Integer, Map<Integer, byte[]>> _resources
+			= new TreeMap<Integer, Map<Integer, byte[]>>();
+	private int _nextIconId = 1;
+
+	/** Offsets of the data entry RVAs within the last laid out section. */
+	private final List<Integer> _rvaOffsets = new ArrayList<Integer>();
+
+	public ResourceSection(int language) {
+		_language = language;
+	}
+
+	public void add(int type, int id, byte[] data) {
+		Map<Integer, byte[]> ids = _resources.get(type);
+
+		if (ids == null) {
+			ids = new TreeMap<Integer, byte[]>();
+			_resources.put(type, ids);
+		}
+
+		ids.put(id, data);
+	}
+
+	public void addFile(int type, int id, File f) throws IOException {
+		add(type, id, Files.readAllBytes(f.toPath()));
+	}
+
+	/**
+	 * Adds each image of the .ico file as RT_ICON and the icon directory
+	 * pointing at them as RT_GROUP_ICON, the way windres splits it.
+	 */
+	public void addIcon(int id, File f) throws IOException {
+		byte[] ico = Files.readAllBytes(f.toPath());
+
+		if (ico.length < 6 || getWord(ico, 0) != 0 || getWord(ico, 2) != 1) {
+			throw new IOException(Messages.getString("ResourceSection.invalid.icon",
+					f.getPath()));
+		}
+
+		int count = getWord(ico, 4);
+		LeBuffer group = new LeBuffer();
+		group.word(0);
+		group.word(1);
+		group.word(count);
+
+		for (int i = 0; i < count; i++) {
+			int entry = 6 + i * 16;
+
+			if (entry + 16 > ico.length) {
+				throw new IOException(Messages.getString("ResourceSection.invalid.icon",
+						f.getPath()));
+			}
+
+			int size = getDword(ico, entry + 8);
+			int offset = getDword(ico, entry + 12);
+
+			if (size < 0 || offset < 0 || offset + size > ico.length) {
+				throw new IOException(Messages.getString("ResourceSection.invalid.icon",
+						f.getPath()));
+			}
+
+			byte[] image = new byte[size];
+			System.arraycopy(ico, offset, image, 0, size);
+			int iconId = _nextIconId++;
+			add(RT_ICON, iconId, image);
+
+			// GRPICONDIRENTRY: ICONDIRENTRY with the image offset replaced by
+			// the id, missing planes and bit count are taken from the DIB header
+			int planes = getWord(ico, entry + 4);
+			int bitCount = getWord(ico, entry + 6);
+
+			if ((planes == 0 || bitCount == 0) && size >= 16 && getDword(image, 0) == 40) {
+				planes = getWord(image, 12);
+				bitCount = getWord(image, 14);
+			}
+
+			group.write(ico, entry, 4);
+			group.word(planes);
+			group.word(bitCount);
+			group.dword(size);
+			group.word(iconId);
+		}
+
+		add(RT_GROUP_ICON, id, group.toByteArray());
+	}
+
+	/**
+	 * Bitmap resources are stored without the BITMAPFILEHEADER.
+	 */
+	public void addBitmap(int id, File f) throws IOException {
+		byte[] bmp = Files.readAllBytes(f.toPath());
+
+		if (bmp.length <= BITMAP_FILE_HEADER_SIZE || bmp[0] != 'B' || bmp[1] != 'M') {
+			throw new IOException(Messages.getString("ResourceSection.invalid.bitmap",
+					f.getPath()));
+		}
+
+		byte[] dib = new byte[bmp.length - BITMAP_FILE_HEADER_SIZE];
+		System.arraycopy(bmp, BITMAP_FILE_HEADER_SIZE, dib, 0, dib.length);
+		add(RT_BITMAP, id, dib);
+	}
+
+	/**
+	 * Adds a VS_VERSIONINFO block with a single string table.
+	 * 
+	 * @param translation language id in the high word, charset in the low word.
+	 * @param strings string table values in the order of the .rc file.
+	 */
+	public void addVersionInfo(int id, String fileVersion, String productVersion,
+			int fileOs, int fileType, int translation, Map<String, String> strings) {
+		LeBuffer fixed = new LeBuffer();
+		fixed.dword(0xfeef04bd);		// dwSignature
+		fixed.dword(0x00010000);		// dwStrucVersion
+		fixed.version(fileVersion);
+		fixed.version(productVersion);
+		fixed.dword(0);					// dwFileFlagsMask
+		fixed.dword(0);					// dwFileFlags
+		fixed.dword(fileOs);
+		fixed.dword(fileType);
+		fixed.dword(0);					// dwFileSubtype
+		fixed.dword(0);					// dwFileDateMS
+		fixed.dword(0);					// dwFileDateLS
+
+		List<byte[]> values = new ArrayList<byte[]>();
+
+		for (Map.Entry<String, String> e : strings.entrySet()) {
+			String value = e.getValue() + '\0';
+			values.add(versionNode(e.getKey(), 1, utf16(value), value.length()));
+		}
+
+		byte[] table = versionNode(String.format("%04X%04X",
+				translation >>> 16, translation & 0xffff), 1, null, 0, values);
+
+		LeBuffer var = new LeBuffer();
+		var.word(translation >>> 16);
+		var.word(translation & 0xffff);
+
+		byte[] stringFileInfo = versionNode("StringFileInfo", 1, null, 0, table);
+		byte[] varFileInfo = versionNode("VarFileInfo", 1, null, 0,
+				versionNode("Translation", 0, var.toByteArray(), 4));
+		add(RT_VERSION, id, versionNode("VS_VERSION_INFO", 0,
+				fixed.toByteArray(), fixed.size(), stringFileInfo, varFileInfo));
+	}
+
+	/**
+	 * Lays out the section: directory tables (type, id, language), data
+	 * entries and the data itself.
+	 * 
+	 * @param rva address of the section in the image, 0 for an object file
+	 * 			where the data entries are relocated by the linker.
+	 */
+	public byte[] toByteArray(int rva) {
+		_rvaOffsets.clear();
+		int count = 0;
+
+		for (Map<Integer, byte[]> ids : _resources.values()) {
+			count += ids.size();
+		}
+
+		int idDirs = DIRECTORY_SIZE + _resources.size() * DIRECTORY_ENTRY_SIZE;
+		int langDirs = idDirs + _resources.size() * DIRECTORY_SIZE + count * DIRECTORY_ENTRY_SIZE;
+		int dataEntries = langDirs + count * (DIRECTORY_SIZE + DIRECTORY_ENTRY_SIZE);
+		int data = dataEntries + count * DATA_ENTRY_SIZE;
+
+		LeBuffer dirs = new LeBuffer();
+		LeBuffer entries = new LeBuffer();
+		LeBuffer blobs = new LeBuffer();
+		LeBuffer langs = new LeBuffer();
+
+		directory(dirs, _resources.size());
+		int idDir = idDirs;
+		for (Map.Entry<Integer, Map<Integer, byte[]>> type : _resources.entrySet()) {
+			dirs.dword(type.getKey());
+			dirs.dword(IMAGE_RESOURCE_DATA_IS_DIRECTORY | idDir);
+			idDir += DIRECTORY_SIZE + type.getValue().size() * DIRECTORY_ENTRY_SIZE;
+		}
+
+		int langDir = langDirs;
+		int dataEntry = dataEntries;
+		for (Map<Integer, byte[]> ids : _resources.values()) {
+			directory(dirs, ids.size());
+
+			for (Map.Entry<Integer, byte[]> id : ids.entrySet()) {
+				dirs.dword(id.getKey());
+				dirs.dword(IMAGE_RESOURCE_DATA_IS_DIRECTORY | langDir);
+				langDir += DIRECTORY_SIZE + DIRECTORY_ENTRY_SIZE;
+
+				directory(langs, 1);
+				langs.dword(_language);
+				langs.dword(dataEntry);
+
+				blobs.align(8);
+				_rvaOffsets.add(dataEntry);
+				entries.dword(rva + data + blobs.size());
+				entries.dword(id.getValue().length);
+				entries.dword(0);		// CodePage
+				entries.dword(0);		// Reserved
+				dataEntry += DATA_ENTRY_SIZE;
+
+				blobs.write(id.getValue(), 0, id.getValue().length);
+			}
+		}
+
+		blobs.align(4);
+		LeBuffer section = new LeBuffer();
+		section.write(dirs.toByteArray(), 0, dirs.size());
+		section.write(langs.toByteArray(), 0, langs.size());
+		section.write(entries.toByteArray(), 0, entries.size());
+		section.write(blobs.toByteArray(), 0, blobs.size());
+		return section.toByteArray();
+	}
+
+	/**
+	 * Writes a pe-i386 COFF object with a single .rsrc section, the same
+	 * kind of object windres produces for the linker.
+	 */
+	public void writeCoff(File f) throws IOException {
+		byte[] rsrc = toByteArray(0);
+		int relocations = FILE_HEADER_SIZE + SECTION_HEADER_SIZE + rsrc.length;
+		int symbols = relocations + _rvaOffsets.size() * 10;
+
+		LeBuffer coff = new LeBuffer();
+		// IMAGE_FILE_HEADER
+		coff.word(IMAGE_FILE_MACHINE_I386);
+		coff.word(1);						// NumberOfSections
+		coff.dword(0);						// TimeDateStamp
+		coff.dword(symbols);
+		coff.dword(2);						// NumberOfSymbols, with the aux record
+		coff.word(0);						// SizeOfOptionalHeader
+		coff.word(IMAGE_FILE_LINE_NUMS_STRIPPED | IMAGE_FILE_32BIT_MACHINE);
+
+		// IMAGE_SECTION_HEADER
+		coff.name(".rsrc");
+		coff.dword(0);						// VirtualSize
+		coff.dword(0);						// VirtualAddress
+		coff.dword(rsrc.length);
+		coff.dword(FILE_HEADER_SIZE + SECTION_HEADER_SIZE);
+		coff.dword(relocations);
+		coff.dword(0);						// PointerToLinenumbers
+		coff.word(_rvaOffsets.size());
+		coff.word(0);						// NumberOfLinenumbers
+		coff.dword(IMAGE_SCN_CNT_INITIALIZED_DATA | IMAGE_SCN_ALIGN_4BYTES
+				| IMAGE_SCN_MEM_READ | IMAGE_SCN_MEM_WRITE);
+
+		coff.write(rsrc, 0, rsrc.length);
+
+		// IMAGE_RELOCATION, the RVAs are relative to the section symbol
+		for (int offset : _rvaOffsets) {
+			coff.dword(offset);
+			coff.dword(0);					// SymbolTableIndex
+			coff.word(IMAGE_REL_I386_DIR32NB);
+		}
+
+		// IMAGE_SYMBOL for the section and its IMAGE_AUX_SYMBOL
+		coff.name(".rsrc");
+		coff.dword(0);						// Value
+		coff.word(1);						// SectionNumber
+		coff.word(0);						// Type
+		coff.write(IMAGE_SYM_CLASS_STATIC);
+		coff.write(1);						// NumberOfAuxSymbols
+		coff.dword(rsrc.length);
+		coff.word(_rvaOffsets.size());
+		coff.word(0);						// NumberOfLinenumbers
+		coff.dword(0);						// CheckSum
+		coff.word(0);						// Number
+		coff.write(0);						// Selection
+		coff.write(0);
+		coff.word(0);
+
+		coff.dword(4);						// empty string table
+
+		FileOutputStream os = null;
+		try {
+			os = new FileOutputStream(f);
+			coff.writeTo(os);
+		} finally {
+			Util.close(os);
+		}
+	}
+
+	/**
+	 * Copies a linked executable without resources and appends the resources
+	 * as a new .rsrc section, the way ld would have placed them.
+	 */
+	public void writePe(File head, File f) throws IOException {
+		byte[] exe = Files.readAllBytes(head.toPath());
+		int pe = exe.length >= 0x40 ? getDword(exe, 0x3c) : -1;
+
+		if (pe < 0 || pe + 24 > exe.length
+				|| getWord(exe, 0) != IMAGE_DOS_SIGNATURE
+				|| getDword(exe, pe) != IMAGE_NT_SIGNATURE
+				|| getWord(exe, pe + 24) != IMAGE_NT_OPTIONAL_HDR32_MAGIC) {
+			throw new IOException(Messages.getString("ResourceSection.invalid.head",
+					head.getPath()));
+		}
+
+		int sections = getWord(exe, pe + 6);
+		int opt = pe + 24;
+		int table = opt + getWord(exe, pe + 20);
+		int sectionAlignment = getDword(exe, opt + 32);
+		int fileAlignment = getDword(exe, opt + 36);
+		int sizeOfHeaders = getDword(exe, opt + 60);
+		int header = table + sections * SECTION_HEADER_SIZE;
+
+		if (header + SECTION_HEADER_SIZE > sizeOfHeaders
+				|| getDword(exe, opt + 92) <= IMAGE_DIRECTORY_ENTRY_RESOURCE) {
+			throw new IOException(Messages.getString("ResourceSection.invalid.head",
+					head.getPath()));
+		}
+
+		int virtualEnd = 0;
+		int rawEnd = sizeOfHeaders;
+
+		for (int i = 0; i < sections; i++) {
+			int section = table + i * SECTION_HEADER_SIZE;
+			int virtualSize = getDword(exe, section + 8);
+			int rawSize = getDword(exe, section + 16);
+			virtualEnd = Math.max(virtualEnd,
+					getDword(exe, section + 12) + Math.max(virtualSize, rawSize));
+
+			if (rawSize > 0) {
+				rawEnd = Math.max(rawEnd, getDword(exe, section + 20) + rawSize);
+			}
+		}
+
+		int rva = align(virtualEnd, sectionAlignment);
+		int pointer = align(rawEnd, fileAlignment);
+		byte[] rsrc = toByteArray(rva);
+		int rawSize = align(rsrc.length, fileAlignment);
+		byte[] image = new byte[pointer + rawSize];
+		System.arraycopy(exe, 0, image, 0, Math.min(exe.length, pointer));
+		System.arraycopy(rsrc, 0, image, pointer, rsrc.length);
+
+		for (int i = 0; i < 8; i++) {
+			image[header + i] = (byte) (i < 5 ? ".rsrc".charAt(i) : 0);
+		}
+
+		setDword(image, header + 8, rsrc.length);		// VirtualSize
+		setDword(image, header + 12, rva);
+		setDword(image, header + 16, rawSize);
+		setDword(image, header + 20, pointer);
+		setDword(image, header + 36, IMAGE_SCN_CNT_INITIALIZED_DATA
+				| IMAGE_SCN_MEM_READ | IMAGE_SCN_MEM_WRITE);
+
+		setWord(image, pe + 6, sections + 1);
+		setDword(image, pe + 12, 0);					// PointerToSymbolTable
+		setDword(image, pe + 16, 0);					// NumberOfSymbols
+		setDword(image, opt + 8, getDword(image, opt + 8) + rawSize);	// SizeOfInitializedData
+		setDword(image, opt + 56, align(rva + rsrc.length, sectionAlignment));	// SizeOfImage
+		setDword(image, opt + 96 + IMAGE_DIRECTORY_ENTRY_RESOURCE * 8, rva);
+		setDword(image, opt + 100 + IMAGE_DIRECTORY_ENTRY_RESOURCE * 8, rsrc.length);
+		setDword(image, opt + 64, 0);
+		setDword(image, opt + 64, checksum(image));
+
+		FileOutputStream os = null;
+		try {
+			os = new FileOutputStream(f);
+			os.write(image);
+		} finally {
+			Util.close(os);
+		}
+	}
+
+	/**
+	 * PE image checksum (imagehlp CheckSumMappedFile), the CheckSum field
+	 * has to be zero.
+	 */
+	private static int checksum(byte[] image) {
+		long sum = 0;
+
+		for (int i = 0; i < image.length; i += 2) {
+			sum += (i + 1 < image.length) ? getWord(image, i) : image[i] & 0xff;
+			sum = (sum & 0xffff) + (sum >>> 16);
+		}
+
+		return (int) ((sum & 0xffff) + (sum >>> 16)) + image.length;
+	}
+
+	private static int align(int value, int alignment) {
+		return (value + alignment - 1) / alignment * alignment;
+	}
+
+	private static void directory(LeBuffer b, int ids) {
+		b.dword(0);							// Characteristics
+		b.dword(0);							// TimeDateStamp
+		b.word(0);							// MajorVersion
+		b.word(0);							// MinorVersion
+		b.word(0);							// NumberOfNamedEntries
+		b.word(ids);						// NumberOfIdEntries
+	}
+
+	/**
+	 * Version info block: wLength, wValueLength, wType, szKey, value and
+	 * children, each aligned on a 32-bit boundary.
+	 */
+	private static byte[] versionNode(String key, int type, byte[] value,
+			int valueLength, byte[]... children) {
+		List<byte[]> list = new ArrayList<byte[]>();
+
+		for (byte[] child : children) {
+			list.add(child);
+		}
+
+		return versionNode(key, type, value, valueLength, list);
+	}
+
+	private static byte[] versionNode(String key, int type, byte[] value,
+			int valueLength, List<byte[]> children) {
+		LeBuffer b = new LeBuffer();
+		b.word(0);
+		b.word(valueLength);
+		b.word(type);
+		byte[] k = utf16(key + '\0');
+		b.write(k, 0, k.length);
+		b.align(4);
+
+		if (value != null) {
+			b.write(value, 0, value.length);
+		}
+
+		for (byte[] child : children) {
+			b.align(4);
+			b.write(child, 0, child.length);
+		}
+
+		b.setWord(0, b.size());
+		return b.toByteArray();
+	}
+
+	private static byte[] utf16(String s) {
+		try {
+			return s.getBytes("UTF-16LE");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static int getWord(byte[] b, int i) {
+		return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8;
+	}
+
+	private static int getDword(byte[] b, int i) {
+		return getWord(b, i) | getWord(b, i + 2) << 16;
+	}
+
+	private static void setWord(byte[] b, int i, int v) {
+		b[i] = (byte) v;
+		b[i + 1] = (byte) (v >>> 8);
+	}
+
+	private static void setDword(byte[] b, int i, int v) {
+		setWord(b, i, v);
+		setWord(b, i + 2, v >>> 16);
+	}
+
+	private static class LeBuffer extends ByteArrayOutputStream {
+
+		public void word(int v) {
+			write(v);
+			write(v >>> 8);
+		}
+
+		public void dword(int v) {
+			word(v);
+			word(v >>> 16);
+		}
+
+		public void setWord(int pos, int v) {
+			ResourceSection.setWord(buf, pos, v);
+		}
+
+		/**
+		 * Writes a "1.2.3.4" version as two dwords.
+		 */
+		public void version(String version) {
+			String[] parts = version.split("\\.");
+			dword(Integer.parseInt(parts[0]) << 16 | Integer.parseInt(parts[1]));
+			dword(Integer.parseInt(parts[2]) << 16 | Integer.parseInt(parts[3]));
+		}
+
+		public void name(String name) {
+			for (int i = 0; i < 8; i++) {
+				write(i < name.length() ? name.charAt(i) : 0);
+			}
+		}
+
+		public void align(int n) {
+			while (size() % n != 0) {
+				write(0);
+			}
+		}
+	}
+}
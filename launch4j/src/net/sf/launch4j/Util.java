@@ -70,7 +70,14 @@ public class Util {
 	}
 
 	public static File createTempFile(String suffix) throws IOException {
-		String tmpdir = System.getProperty("launch4j.tmpdir");
+		return createTempFile(suffix, null);
+	}
+
+	/**
+	 * @param dir temporary file directory, null to use the launch4j.tmpdir property.
+	 */
+	public static File createTempFile(String suffix, File dir) throws IOException {
+		String tmpdir = (dir != null) ? dir.getPath() : System.getProperty("launch4j.tmpdir");
 		if (tmpdir != null) {
 			if (tmpdir.indexOf(' ') != -1) {
 				throw new IOException(Messages.getString("Util.tmpdir"));
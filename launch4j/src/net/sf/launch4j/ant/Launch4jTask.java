@@ -41,8 +41,8 @@ import java.io.File;
 import net.sf.launch4j.Builder;
 import net.sf.launch4j.BuilderException;
 import net.sf.launch4j.Log;
+import net.sf.launch4j.config.BuildContext;
 import net.sf.launch4j.config.Config;
-import net.sf.launch4j.config.ConfigPersister;
 import net.sf.launch4j.config.ConfigPersisterException;
 
 import org.apache.tools.ant.BuildException;
@@ -69,18 +69,13 @@ public class Launch4jTask extends Task {
 
 	public void execute() throws BuildException {
 		try {
-			if (tmpdir != null) {
-				System.setProperty("launch4j.tmpdir", tmpdir.getPath());
-			}
-			if (bindir != null) {
-				System.setProperty("launch4j.bindir", bindir.getPath());
-			}
+			final BuildContext context;
 			if (_configFile != null && _config != null) {
 				throw new BuildException(
 						Messages.getString("Launch4jTask.specify.config"));
 			} else if (_configFile != null) {
-				ConfigPersister.getInstance().load(_configFile);
-				Config c = ConfigPersister.getInstance().getConfig();
+				context = BuildContext.load(_configFile);
+				Config c = context.getConfig();
 				if (jar != null) {
 					c.setJar(jar);
 				}
@@ -101,13 +96,16 @@ public class Launch4jTask extends Task {
 				}
 			} else if (_config != null) {
 				_config.unwrap();
-				ConfigPersister.getInstance().setAntConfig(_config,
-						getProject().getBaseDir());
+				context = new BuildContext(_config, getProject().getBaseDir());
 			} else {
 				throw new BuildException(
 						Messages.getString("Launch4jTask.specify.config"));
 			}
-			final Builder b = new Builder(Log.getAntLog());
+			// Per build instead of the launch4j.tmpdir / launch4j.bindir system
+			// properties, so that parallel tasks do not affect each other.
+			context.setTmpdir(tmpdir);
+			context.setBindir(bindir);
+			final Builder b = new Builder(Log.getAntLog(), context);
 			b.build();
 		} catch (ConfigPersisterException e) {
 			throw new BuildException(e);
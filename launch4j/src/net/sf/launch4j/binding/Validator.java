@@ -41,7 +41,6 @@ import java.util.Arrays;
 import java.util.List;
 
 import net.sf.launch4j.Util;
-import net.sf.launch4j.config.ConfigPersister;
 
 /**
  * @author Copyright (C) 2004 Grzegorz Kowal
@@ -213,8 +212,10 @@ public class Validator {
 		}
 	}
 	
-	public static void checkFile(File f, String property, String fileDescription) {
-		File cfgPath = ConfigPersister.getInstance().getConfigPath();
+	/**
+	 * Checks that the file exists as given or relative to cfgPath.
+	 */
+	public static void checkFile(File f, File cfgPath, String property, String fileDescription) {
 		if (f == null
 				|| f.getPath().equals("")
 				|| (!f.exists() && !Util.getAbsoluteFile(cfgPath, f).exists())) {
@@ -223,9 +224,9 @@ public class Validator {
 		}
 	}
 
-	public static void checkOptFile(File f, String property, String fileDescription) {
+	public static void checkOptFile(File f, File cfgPath, String property, String fileDescription) {
 		if (f != null && f.getPath().length() > 0) {
-			checkFile(f, property, fileDescription);
+			checkFile(f, cfgPath, property, fileDescription);
 		}
 	}
 
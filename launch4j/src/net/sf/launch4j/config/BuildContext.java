@@ -0,0 +1,122 @@
+/*
+	Launch4j (http://launch4j.sourceforge.net/)
+	Cross-platform Java application wrapper for creating Windows native executables.
+
+	Copyright (c) 2004, 2015 Grzegorz Kowal
+	All rights reserved.
+
+	Redistribution and use in source and binary forms, with or without modification,
+	are permitted provided that the following conditions are met:
+	
+	1. Redistributions of source code must retain the above copyright notice,
+	   this list of conditions and the following disclaimer.
+	
+	2. Redistributions in binary form must reproduce the above copyright notice,
+	   this list of conditions and the following disclaimer in the documentation
+	   and/or other materials provided with the distribution.
+	
+	3. Neither the name of the copyright holder nor the names of its contributors
+	   may be used to endorse or promote products derived from this software without
+	   specific prior written permission.
+	
+	THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+	AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+	THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+	ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+	FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+	(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+	LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED
+	AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+	OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+	OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+
+package net.sf.launch4j.config;
+
+import java.io.File;
+
+/**
+ * State of a single build: the configuration, the directory its relative
+ * paths are resolved against and optional tool and temporary directories.
+ * Every build gets its own context, so builds running at the same time in one
+ * JVM (batch mode, parallel Ant or Maven builds) do not share mutable state.
+ * ConfigPersister only holds the configuration edited in the GUI.
+ */
+public class BuildContext {
+	private final Config _config;
+	private final File _configPath;
+	private File _bindir;
+	private File _tmpdir;
+
+	/**
+	 * @param configPath directory against which relative paths in the
+	 * 		configuration are resolved.
+	 */
+	public BuildContext(Config config, File configPath) {
+		_config = config;
+		_configPath = configPath;
+	}
+
+	/**
+	 * Loads a configuration file for building, without changing the
+	 * configuration held by ConfigPersister.
+	 */
+	public static BuildContext load(File configFile) throws ConfigPersisterException {
+		return new BuildContext(ConfigPersister.getInstance().loadConfig(configFile),
+				configFile.getAbsoluteFile().getParentFile());
+	}
+
+	public Config getConfig() {
+		return _config;
+	}
+
+	public File getConfigPath() {
+		return _configPath;
+	}
+
+	/**
+	 * Directory with windres and ld, null to use the launch4j.bindir
+	 * property or the bin directory next to launch4j.
+	 */
+	public File getBindir() {
+		return _bindir;
+	}
+
+	public void setBindir(File bindir) {
+		_bindir = bindir;
+	}
+
+	/**
+	 * Directory for temporary files, null to use the launch4j.tmpdir
+	 * property or the system default.
+	 */
+	public File getTmpdir() {
+		return _tmpdir;
+	}
+
+	public void setTmpdir(File tmpdir) {
+		_tmpdir = tmpdir;
+	}
+
+	public File getAbsoluteFile(File f) {
+		return f.isAbsolute() ? f : new File(_configPath, f.getPath());
+	}
+
+	public File getOutputPath() {
+		if (_config.getOutfile().isAbsolute()) {
+			return _config.getOutfile().getParentFile();
+		}
+		File parent = _config.getOutfile().getParentFile();
+		return (parent != null) ? new File(_configPath, parent.getPath()) : _configPath;
+	}
+
+	public File getOutputFile() {
+		return _config.getOutfile().isAbsolute()
+			? _config.getOutfile()
+			: new File(getOutputPath(), _config.getOutfile().getName());
+	}
+
+	public void validate() {
+		_config.validate(_configPath);
+	}
+}
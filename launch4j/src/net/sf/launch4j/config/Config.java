@@ -104,6 +104,13 @@ public class Config implements IValidatable {
 	private Msg	messages;
 
 	public void checkInvariants() {
+		checkInvariants(ConfigPersister.getInstance().getConfigPath());
+	}
+
+	/**
+	 * @param configPath directory against which relative file paths are checked.
+	 */
+	private void checkInvariants(File configPath) {
 		Validator.checkTrue(outfile != null && outfile.getPath().endsWith(".exe"),
 				"outfile", Messages.getString("Config.specify.output.exe"));
 		if (dontWrapJar) {
@@ -115,7 +122,7 @@ public class Config implements IValidatable {
 						Messages.getString("ClassPath.or.jar"));
 			}
 		} else {
-			Validator.checkFile(jar, "jar",
+			Validator.checkFile(jar, configPath, "jar",
 					Messages.getString("Config.application.jar"));
 		}
 		if (!Validator.isEmpty(chdir)) {
@@ -125,8 +132,8 @@ public class Config implements IValidatable {
 					|| chdir.toLowerCase().equals("false"),
 					"chdir", Messages.getString("Config.chdir.path"));
 		}
-		Validator.checkOptFile(manifest, "manifest", Messages.getString("Config.manifest"));
-		Validator.checkOptFile(icon, "icon", Messages.getString("Config.icon"));
+		Validator.checkOptFile(manifest, configPath, "manifest", Messages.getString("Config.manifest"));
+		Validator.checkOptFile(icon, configPath, "icon", Messages.getString("Config.icon"));
 		Validator.checkOptString(cmdLine, Validator.MAX_BIG_STR, "jarArgs",
 				Messages.getString("Config.jar.arguments"));
 		Validator.checkOptString(errTitle, Validator.MAX_STR, "errTitle",
@@ -173,12 +180,20 @@ public class Config implements IValidatable {
 	}
 	
 	public void validate() {
-		checkInvariants();
+		validate(ConfigPersister.getInstance().getConfigPath());
+	}
+
+	/**
+	 * Validates a configuration loaded from configPath, independently of
+	 * the configuration currently held by ConfigPersister.
+	 */
+	public void validate(File configPath) {
+		checkInvariants(configPath);
 		if (classPath != null) {
 			classPath.checkInvariants();
 		}
 		if (splash != null) {
-			splash.checkInvariants();
+			splash.checkInvariants(configPath);
 		}
 		if (versionInfo != null) {
 			versionInfo.checkInvariants();
@@ -103,17 +103,18 @@ public class ConfigPersister {
 	}
 	
 	public File getOutputPath() throws IOException {
-		if (_config.getOutfile().isAbsolute()) {
-			return _config.getOutfile().getParentFile();
-		}
-		File parent = _config.getOutfile().getParentFile();
-		return (parent != null) ? new File(_configPath, parent.getPath()) : _configPath;
+		return getBuildContext().getOutputPath();
 	}
 	
 	public File getOutputFile() throws IOException {
-		return _config.getOutfile().isAbsolute()
-			? _config.getOutfile()
-			: new File(getOutputPath(), _config.getOutfile().getName());
+		return getBuildContext().getOutputFile();
+	}
+
+	/**
+	 * Context for building the configuration edited in the GUI.
+	 */
+	public BuildContext getBuildContext() {
+		return new BuildContext(_config, _configPath);
 	}
 
 	public void createBlank() {
@@ -122,12 +123,17 @@ public class ConfigPersister {
 		_configPath = null;
 	}
 
-	public void setAntConfig(Config c, File basedir) {
-		_config = c;
-		_configPath = basedir;
+	public void load(File f) throws ConfigPersisterException {
+		_config = loadConfig(f);
+		setConfigPath(f);
 	}
 
-	public void load(File f) throws ConfigPersisterException {
+	/**
+	 * Reads a configuration file without changing the current configuration,
+	 * so that several files can be loaded and built concurrently.
+	 * @see BuildContext#load(File)
+	 */
+	public Config loadConfig(File f) throws ConfigPersisterException {
 	    try {
 			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder builder = factory.newDocumentBuilder();
@@ -137,8 +143,7 @@ public class ConfigPersister {
 		    LSSerializer lsSerializer = domImplementation.createLSSerializer();
 		    String configString = lsSerializer.writeToString(doc);
 
-	    	_config = convertToCurrent(configString);
-	    	setConfigPath(f);
+	    	return convertToCurrent(configString);
 		} catch (Exception e) {
 			throw new ConfigPersisterException(e);
 		}
@@ -59,7 +59,11 @@ public class Splash implements IValidatable {
 	private boolean timeoutErr = true;
 
 	public void checkInvariants() {
-		Validator.checkFile(file, "splash.file",
+		checkInvariants(ConfigPersister.getInstance().getConfigPath());
+	}
+
+	public void checkInvariants(File configPath) {
+		Validator.checkFile(file, configPath, "splash.file",
 				Messages.getString("Splash.splash.file"));
 		Validator.checkRange(timeout, 1, 60 * 15, "splash.timeout",
 				Messages.getString("Splash.splash.timeout"));
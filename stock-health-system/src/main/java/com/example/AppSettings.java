@@ -0,0 +1,117 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// 應用程式設定：依序讀取
+//   1. 打包在 jar 內的 application.properties（預設值）
+//   2. 使用者家目錄的 ~/.stock-health/settings.properties（安裝後不用重新打包即可調整）
+//   3. 啟動參數 -Dkey=value（臨時覆寫，例如 -Dfugle.offline=true）
+// 後面的來源覆寫前面的；讀不到或格式錯誤的值一律退回呼叫端給的預設值
+public final class AppSettings {
+    private final Properties props;
+
+    private AppSettings(Properties props) {
+        this.props = props;
+    }
+
+    // 整個程式共用一份設定（第一次使用時才讀檔）
+    public static AppSettings load() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final AppSettings INSTANCE = new AppSettings(read());
+    }
+
+    private static Properties read() {
+        Properties props = new Properties();
+        try (InputStream input = AppSettings.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (IOException e) {
+            System.err.println("無法載入 application.properties: " + e.getMessage());
+        }
+
+        Path userFile = Paths.get(System.getProperty("user.home"), ".stock-health", "settings.properties");
+        if (Files.isReadable(userFile)) {
+            try (Reader reader = Files.newBufferedReader(userFile, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            } catch (IOException e) {
+                System.err.println("無法載入 " + userFile + ": " + e.getMessage());
+            }
+        }
+        return props;
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = System.getProperty(key, props.getProperty(key)); // -D 啟動參數優先
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("設定值格式錯誤（" + key + "=" + value + "），改用預設值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("設定值格式錯誤（" + key + "=" + value + "），改用預設值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("設定值格式錯誤（" + key + "=" + value + "），改用預設值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    // 路徑設定：開頭的 ~ 代表使用者家目錄
+    public Path getPath(String key, Path defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.startsWith("~")) {
+            value = System.getProperty("user.home") + value.substring(1);
+        }
+        return Paths.get(value);
+    }
+}
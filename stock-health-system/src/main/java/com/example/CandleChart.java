@@ -0,0 +1,503 @@
+package com.example;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+import static com.example.CanvasChart.GRID;
+import static com.example.CanvasChart.LABEL_FONT;
+import static com.example.CanvasChart.LEFT;
+import static com.example.CanvasChart.PLOT_BACKGROUND;
+import static com.example.CanvasChart.RIGHT;
+import static com.example.CanvasChart.TICK_FONT;
+import static com.example.CanvasChart.TITLE_FONT;
+import static com.example.CanvasChart.TOP;
+
+// K 線圖（Canvas）：上方開高低收 K 棒、下方成交量，X 軸為連續的日期軸（epoch day），不再為每根 K 棒建立字串類別
+// 直接引用 CandleSeries 的基本型別陣列；縮放、平移只改變可見的日期範圍，以二分搜尋找出對應的索引區間，資料本身不重建
+// 可見的 K 棒多於像素時以 Downsampler 合併相鄰的 K 棒（成交量加總），多年的日 K 也只畫出畫面放得下的根數
+// 日期刻度依可見範圍自動選擇日／週／月／季／年，標籤水平顯示
+final class CandleChart extends Region {
+    private static final Color UP = Color.rgb(214, 39, 40);    // 台股慣例：漲紅
+    private static final Color DOWN = Color.rgb(44, 160, 44);  // 跌綠
+    private static final double BOTTOM = 40;
+    private static final double PANEL_GAP = 10; // K 線與成交量之間的間距
+    private static final double VOLUME_RATIO = 0.22; // 成交量區佔繪圖區高度的比例
+    private static final double MIN_CANDLE_WIDTH = 3; // 每根 K 棒至少佔幾個像素，再窄就合併相鄰的 K 棒
+    private static final double MIN_SPAN_DAYS = 14; // 最多放大到只顯示幾天
+    private static final double MIN_TICK_SPACING = 90; // 日期標籤之間至少幾個像素
+
+    // 日期刻度的候選間距（由密到疏），依可見範圍選第一個不會擠在一起的
+    private record TimeStep(ChronoUnit unit, int amount, double approxDays, DateTimeFormatter format) {}
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter YEAR = DateTimeFormatter.ofPattern("yyyy");
+    private static final TimeStep[] STEPS = {
+            new TimeStep(ChronoUnit.DAYS, 1, 1, DAY),
+            new TimeStep(ChronoUnit.WEEKS, 1, 7, DAY),
+            new TimeStep(ChronoUnit.WEEKS, 2, 14, DAY),
+            new TimeStep(ChronoUnit.MONTHS, 1, 30.4, MONTH),
+            new TimeStep(ChronoUnit.MONTHS, 3, 91.3, MONTH),
+            new TimeStep(ChronoUnit.MONTHS, 6, 182.6, MONTH),
+            new TimeStep(ChronoUnit.YEARS, 1, 365.25, YEAR),
+            new TimeStep(ChronoUnit.YEARS, 2, 730.5, YEAR),
+            new TimeStep(ChronoUnit.YEARS, 5, 1826.25, YEAR),
+            new TimeStep(ChronoUnit.YEARS, 10, 3652.5, YEAR),
+    };
+
+    private final Canvas canvas = new Canvas();
+    private String title = "";
+    private CandleSeries candles = CandleSeries.empty();
+
+    // 完整資料與目前可見的日期範圍（epoch day，K 棒畫在當天的中間）
+    private double fullStart;
+    private double fullEnd = 1;
+    private double viewStart;
+    private double viewEnd = 1;
+    private int from; // 可見的索引範圍 [from, to)
+    private int to;
+    private double priceLower;
+    private double priceUpper = 1;
+    private long dailyMaxVolume = 1; // 可見範圍內單日最大成交量
+    private long maxVolume = 1; // 成交量面板的刻度上限（合併 K 棒時為合併後的最大值）
+
+    private int hover = -1; // 滑鼠所在的資料索引，-1 代表不在繪圖區
+    private double dragX = Double.NaN; // 拖曳平移的起點（X 座標）與當時的可見範圍起點
+    private double dragStart;
+    private boolean dirty; // 已請求重畫、等待下一個 pulse
+
+    // 合併後的 K 棒快取：可見範圍與繪圖區寬度不變時（例如滑鼠移動只重畫提示框）直接沿用
+    // 第 b 根涵蓋資料 [bounds[b], bounds[b + 1])
+    private record Bars(int[] bounds, double[] open, double[] high, double[] low, double[] close, long[] volume) {}
+    private Bars bars;
+    private long barsKey = -1;
+
+    CandleChart() {
+        getChildren().add(canvas);
+        setMinSize(0, 0);
+        setPrefSize(695, 400);
+
+        canvas.setOnMouseMoved(e -> setHover(indexAt(e.getX())));
+        canvas.setOnMouseExited(e -> setHover(-1));
+        canvas.setOnScroll(e -> {
+            if (e.getDeltaY() != 0) {
+                zoom(e.getDeltaY() > 0 ? 0.8 : 1.25, e.getX());
+            }
+        });
+        canvas.setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragStart = viewStart;
+        });
+        canvas.setOnMouseDragged(e -> pan(e.getX()));
+        canvas.setOnMouseReleased(e -> dragX = Double.NaN);
+        canvas.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) {
+                setView(fullStart, fullEnd);
+            }
+        });
+    }
+
+    // 換上新資料（依日期遞增），顯示完整範圍
+    void setCandles(String title, CandleSeries candles) {
+        this.title = title;
+        this.candles = candles;
+        this.hover = -1;
+        if (candles.isEmpty()) {
+            fullStart = 0;
+            fullEnd = 1;
+        } else {
+            fullStart = candles.epochDay(0) - 0.5;
+            fullEnd = Math.max(candles.epochDay(candles.size() - 1) + 0.5, fullStart + MIN_SPAN_DAYS);
+        }
+        setView(fullStart, fullEnd);
+    }
+
+    // 縮放：可見天數乘上 factor，滑鼠下的日期在縮放前後保持不動
+    private void zoom(double factor, double x) {
+        double span = viewEnd - viewStart;
+        double target = Math.max(MIN_SPAN_DAYS, Math.min(fullEnd - fullStart, span * factor));
+        if (target == span) {
+            return;
+        }
+        double plotWidth = canvas.getWidth() - LEFT - RIGHT;
+        double ratio = Math.max(0, Math.min(1, (x - LEFT) / plotWidth));
+        double start = viewStart + ratio * span - ratio * target;
+        start = Math.max(fullStart, Math.min(fullEnd - target, start));
+        setView(start, start + target);
+    }
+
+    // 拖曳平移：移動的像素換算成天數
+    private void pan(double x) {
+        double span = viewEnd - viewStart;
+        double plotWidth = canvas.getWidth() - LEFT - RIGHT;
+        if (Double.isNaN(dragX) || plotWidth <= 0) {
+            return;
+        }
+        double start = dragStart - (x - dragX) / plotWidth * span;
+        start = Math.max(fullStart, Math.min(fullEnd - span, start));
+        if (start != viewStart) {
+            setView(start, start + span);
+        }
+    }
+
+    // 更新可見範圍：二分搜尋出索引區間，再以可見的最高／最低價與最大成交量決定兩個面板的 Y 軸
+    private void setView(double start, double end) {
+        viewStart = start;
+        viewEnd = end;
+        from = candles.lowerBound((int) Math.ceil(start));
+        to = candles.lowerBound((int) Math.floor(end) + 1);
+        barsKey = -1;
+        if (hover < from || hover >= to) {
+            hover = -1;
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        long volume = 1;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, candles.low(i));
+            max = Math.max(max, candles.high(i));
+            volume = Math.max(volume, candles.volume(i));
+        }
+        if (from >= to) {
+            min = 0;
+            max = 1;
+        }
+        double padding = max > min ? (max - min) * 0.05 : 1;
+        priceLower = Math.max(0, min - padding); // 股價 > 0
+        priceUpper = max + padding;
+        dailyMaxVolume = volume;
+        requestDraw();
+    }
+
+    // 重畫只做標記，真正的繪製集中在下一個 pulse 的 layoutChildren：
+    // 同一個 frame 內的多次滑鼠移動、滾輪、拖曳與視窗尺寸變化只會畫一次
+    private void requestDraw() {
+        if (!dirty) {
+            dirty = true;
+            setNeedsLayout(true); // 只標記自己需要排版（不驚動父容器），並排入下一個 pulse
+        }
+    }
+
+    // 畫布跟著 Region 的大小走；JavaFX 在 pulse 排版時才呼叫，尺寸變化與其他重畫請求合併成一次
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            dirty = true;
+        }
+        if (dirty) {
+            dirty = false;
+            draw();
+        }
+    }
+
+    private void setHover(int index) {
+        if (index != hover) {
+            hover = index;
+            requestDraw();
+        }
+    }
+
+    // 滑鼠所在位置最接近的交易日
+    private int indexAt(double x) {
+        double plotWidth = canvas.getWidth() - LEFT - RIGHT;
+        if (from >= to || x < LEFT || x >= LEFT + plotWidth) {
+            return -1;
+        }
+        double day = viewStart + (x - LEFT) / plotWidth * (viewEnd - viewStart);
+        int i = Math.max(from, Math.min(to - 1, candles.lowerBound((int) Math.round(day))));
+        if (i > from && day - candles.epochDay(i - 1) < candles.epochDay(i) - day) {
+            i--;
+        }
+        return i;
+    }
+
+    private double xOf(double day, double plotWidth) {
+        return LEFT + (day - viewStart) / (viewEnd - viewStart) * plotWidth;
+    }
+
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+
+        double plotWidth = width - LEFT - RIGHT;
+        double plotHeight = height - TOP - BOTTOM;
+        if (plotWidth < 20 || plotHeight < 60) {
+            return;
+        }
+        double volumeHeight = plotHeight * VOLUME_RATIO;
+        double priceHeight = plotHeight - volumeHeight - PANEL_GAP;
+        double volumeTop = TOP + priceHeight + PANEL_GAP;
+
+        // 標題
+        g.setFill(Color.BLACK);
+        g.setFont(TITLE_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.fillText(title, width / 2, TOP / 2);
+
+        g.setFill(PLOT_BACKGROUND);
+        g.fillRect(LEFT, TOP, plotWidth, priceHeight);
+        g.fillRect(LEFT, volumeTop, plotWidth, volumeHeight);
+        prepareBars(plotWidth);
+        drawPriceAxis(g, priceHeight);
+        drawVolumeAxis(g, volumeTop, volumeHeight);
+        drawTimeAxis(g, plotWidth, priceHeight, volumeTop, volumeHeight);
+        if (from >= to) {
+            return;
+        }
+
+        // 資料只畫在兩個面板內
+        g.save();
+        g.beginPath();
+        g.rect(LEFT, TOP, plotWidth, plotHeight);
+        g.clip();
+        g.setLineWidth(1);
+        if (bars == null) {
+            double bodyWidth = Math.max(1, plotWidth / (viewEnd - viewStart) * 0.7);
+            for (int i = from; i < to; i++) {
+                drawCandle(g, xOf(candles.epochDay(i), plotWidth), bodyWidth,
+                        candles.open(i), candles.high(i), candles.low(i), candles.close(i), candles.volume(i),
+                        priceHeight, volumeTop, volumeHeight);
+            }
+        } else {
+            int count = bars.open().length;
+            double bodyWidth = Math.max(1, plotWidth / count * 0.7);
+            for (int b = 0; b < count; b++) {
+                double day = (candles.epochDay(bars.bounds()[b]) + candles.epochDay(bars.bounds()[b + 1] - 1)) / 2.0;
+                drawCandle(g, xOf(day, plotWidth), bodyWidth,
+                        bars.open()[b], bars.high()[b], bars.low()[b], bars.close()[b], bars.volume()[b],
+                        priceHeight, volumeTop, volumeHeight);
+            }
+        }
+        g.restore();
+
+        if (hover >= 0) {
+            drawHover(g, plotWidth, plotHeight);
+        }
+    }
+
+    // 可見的 K 棒多於 plotWidth / MIN_CANDLE_WIDTH 根時，合併相鄰的 K 棒（第一天開盤、最後一天收盤、區段最高／最低、成交量加總）
+    private void prepareBars(double plotWidth) {
+        int maxBars = (int) (plotWidth / MIN_CANDLE_WIDTH);
+        long key = ((long) from << 40) ^ ((long) to << 20) ^ maxBars;
+        if (key == barsKey) {
+            return;
+        }
+        barsKey = key;
+        bars = null;
+        maxVolume = dailyMaxVolume;
+        if (to - from <= maxBars) {
+            return;
+        }
+
+        int[] bounds = Downsampler.buckets(from, to, maxBars);
+        int count = bounds.length - 1;
+        double[] open = new double[count];
+        double[] high = new double[count];
+        double[] low = new double[count];
+        double[] close = new double[count];
+        long[] volume = new long[count];
+        for (int b = 0; b < count; b++) {
+            int first = bounds[b];
+            int last = bounds[b + 1] - 1;
+            open[b] = candles.open(first);
+            close[b] = candles.close(last);
+            high[b] = candles.high(first);
+            low[b] = candles.low(first);
+            for (int i = first; i <= last; i++) {
+                high[b] = Math.max(high[b], candles.high(i));
+                low[b] = Math.min(low[b], candles.low(i));
+                volume[b] += candles.volume(i);
+            }
+        }
+        bars = new Bars(bounds, open, high, low, close, volume);
+
+        // 合併後的成交量是多天加總，成交量面板的刻度跟著放大
+        long max = 1;
+        for (long v : volume) {
+            max = Math.max(max, v);
+        }
+        maxVolume = max;
+    }
+
+    // K 棒：影線（最高～最低）+ 實體（開盤～收盤）與同色的成交量柱，收盤 >= 開盤為紅，否則為綠
+    private void drawCandle(GraphicsContext g, double x, double bodyWidth, double open, double high, double low, double close,
+                            long volume, double priceHeight, double volumeTop, double volumeHeight) {
+        Color color = close >= open ? UP : DOWN;
+        double openY = priceY(open, priceHeight);
+        double closeY = priceY(close, priceHeight);
+        g.setStroke(color);
+        g.strokeLine(x, priceY(high, priceHeight), x, priceY(low, priceHeight));
+        g.setFill(color);
+        g.fillRect(x - bodyWidth / 2, Math.min(openY, closeY), bodyWidth, Math.max(1, Math.abs(closeY - openY)));
+
+        double barHeight = volume / (double) maxVolume * volumeHeight;
+        g.fillRect(x - bodyWidth / 2, volumeTop + volumeHeight - barHeight, bodyWidth, barHeight);
+    }
+
+    private double priceY(double price, double priceHeight) {
+        return TOP + (1 - (price - priceLower) / (priceUpper - priceLower)) * priceHeight;
+    }
+
+    // 價格軸：約 6 個整齊的刻度與格線
+    private void drawPriceAxis(GraphicsContext g, double priceHeight) {
+        double step = CanvasChart.niceStep((priceUpper - priceLower) / 6);
+        String format = step >= 1 ? "%,.0f" : step >= 0.1 ? "%.1f" : "%.2f";
+        g.setFont(TICK_FONT);
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.CENTER);
+        g.setStroke(GRID);
+        g.setLineWidth(1);
+        for (double v = Math.ceil(priceLower / step) * step; v <= priceUpper; v += step) {
+            double y = Math.round(priceY(v, priceHeight)) + 0.5;
+            g.strokeLine(LEFT, y, canvas.getWidth() - RIGHT, y);
+            g.setFill(Color.DIMGRAY);
+            g.fillText(String.format(format, v), LEFT - 6, y);
+        }
+
+        g.save();
+        g.setFill(Color.BLACK);
+        g.setFont(LABEL_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.translate(14, TOP + priceHeight / 2);
+        g.rotate(-90);
+        g.fillText("價格（元）", 0, 0);
+        g.restore();
+    }
+
+    // 成交量軸：只標最大值（張數較大時以「萬」「億」縮寫）
+    private void drawVolumeAxis(GraphicsContext g, double volumeTop, double volumeHeight) {
+        g.setFont(TICK_FONT);
+        g.setFill(Color.DIMGRAY);
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.TOP);
+        g.fillText(shortVolume(maxVolume), LEFT - 6, volumeTop);
+
+        g.save();
+        g.setFill(Color.BLACK);
+        g.setFont(LABEL_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.translate(14, volumeTop + volumeHeight / 2);
+        g.rotate(-90);
+        g.fillText("成交量", 0, 0);
+        g.restore();
+    }
+
+    private static String shortVolume(long volume) {
+        if (volume >= 100_000_000L) {
+            return String.format("%.1f億", volume / 100_000_000.0);
+        }
+        if (volume >= 10_000L) {
+            return String.format("%.0f萬", volume / 10_000.0);
+        }
+        return String.format("%,d", volume);
+    }
+
+    // 日期軸：依每天佔的像素選擇刻度間距，在刻度日期畫格線並標上日期
+    private void drawTimeAxis(GraphicsContext g, double plotWidth, double priceHeight, double volumeTop, double volumeHeight) {
+        double pixelsPerDay = plotWidth / (viewEnd - viewStart);
+        TimeStep step = STEPS[STEPS.length - 1];
+        for (TimeStep candidate : STEPS) {
+            if (candidate.approxDays() * pixelsPerDay >= MIN_TICK_SPACING) {
+                step = candidate;
+                break;
+            }
+        }
+
+        g.setFont(TICK_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.TOP);
+        g.setStroke(GRID);
+        g.setLineWidth(1);
+        LocalDate last = LocalDate.ofEpochDay((long) Math.floor(viewEnd));
+        for (LocalDate d = firstTick(LocalDate.ofEpochDay((long) Math.ceil(viewStart)), step); !d.isAfter(last);
+             d = d.plus(step.amount(), step.unit())) {
+            double x = Math.round(xOf(d.toEpochDay(), plotWidth)) + 0.5;
+            if (x < LEFT || x > LEFT + plotWidth) {
+                continue;
+            }
+            g.strokeLine(x, TOP, x, TOP + priceHeight);
+            g.strokeLine(x, volumeTop, x, volumeTop + volumeHeight);
+            g.setFill(Color.DIMGRAY);
+            g.fillText(d.format(step.format()), x, volumeTop + volumeHeight + 6);
+        }
+    }
+
+    // 第一個刻度：週對齊星期一、月對齊月初（且月份為間距的倍數）、年對齊年初（且年份為間距的倍數）
+    private static LocalDate firstTick(LocalDate start, TimeStep step) {
+        return switch (step.unit()) {
+            case WEEKS -> start.with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+            case MONTHS -> {
+                LocalDate d = start.getDayOfMonth() == 1 ? start : start.withDayOfMonth(1).plusMonths(1);
+                while ((d.getMonthValue() - 1) % step.amount() != 0) {
+                    d = d.plusMonths(1);
+                }
+                yield d;
+            }
+            case YEARS -> {
+                LocalDate d = start.getDayOfYear() == 1 ? start : LocalDate.of(start.getYear() + 1, 1, 1);
+                while (d.getYear() % step.amount() != 0) {
+                    d = d.plusYears(1);
+                }
+                yield d;
+            }
+            default -> start;
+        };
+    }
+
+    // 滑鼠所在交易日：垂直參考線 + 開高低收、成交量提示框
+    private void drawHover(GraphicsContext g, double plotWidth, double plotHeight) {
+        double x = Math.round(xOf(candles.epochDay(hover), plotWidth)) + 0.5;
+        g.setStroke(Color.GRAY);
+        g.setLineWidth(1);
+        g.setLineDashes(4, 4);
+        g.strokeLine(x, TOP, x, TOP + plotHeight);
+        g.setLineDashes();
+
+        String[] text = {
+                candles.date(hover).toString(),
+                String.format("開 %.2f  高 %.2f", candles.open(hover), candles.high(hover)),
+                String.format("低 %.2f  收 %.2f", candles.low(hover), candles.close(hover)),
+                String.format("量 %,d", candles.volume(hover)),
+        };
+        double boxWidth = 0;
+        for (String s : text) {
+            boxWidth = Math.max(boxWidth, s.length() * 8.5);
+        }
+        boxWidth += 16;
+        double boxHeight = text.length * 16 + 10;
+        double boxX = x + 10 + boxWidth > LEFT + plotWidth ? x - 10 - boxWidth : x + 10; // 靠右邊時改放在參考線左側
+        double boxY = TOP + 8;
+
+        g.setFill(Color.rgb(255, 255, 255, 0.92));
+        g.fillRect(boxX, boxY, boxWidth, boxHeight);
+        g.setStroke(Color.GRAY);
+        g.strokeRect(boxX + 0.5, boxY + 0.5, boxWidth, boxHeight);
+        g.setFill(Color.BLACK);
+        g.setFont(TICK_FONT);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.setTextBaseline(VPos.TOP);
+        for (int i = 0; i < text.length; i++) {
+            g.fillText(text[i], boxX + 8, boxY + 5 + i * 16);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+// 日 K 序列（依日期遞增）：以平行的基本型別陣列儲存，取代 List<Candle>
+// 十年日 K 約 2500 筆，List<Candle> 每筆是一個 record + 一個 LocalDate 物件；這裡整段只有 7 個陣列，取值與統計都不需要裝箱
+// 建立後不可修改；slice/since/before 等切片共用同一組陣列，只記錄起點與長度，不複製資料
+public final class CandleSeries {
+    private static final CandleSeries EMPTY = new Builder(0).build();
+
+    private final int[] epochDay; // 日期（LocalDate.toEpochDay）
+    private final double[] open; // 開盤價
+    private final double[] high; // 最高價
+    private final double[] low; // 最低價
+    private final double[] close; // 收盤價
+    private final long[] volume; // 成交量
+    private final double[] change; // 漲跌
+    private final int offset;
+    private final int size;
+
+    private CandleSeries(int[] epochDay, double[] open, double[] high, double[] low, double[] close,
+                         long[] volume, double[] change, int offset, int size) {
+        this.epochDay = epochDay;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.change = change;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static CandleSeries empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    public static CandleSeries of(List<Candle> candles) {
+        Builder b = new Builder(candles.size());
+        for (Candle c : candles) {
+            b.add(c);
+        }
+        return b.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int epochDay(int i) {
+        return epochDay[index(i)];
+    }
+
+    public LocalDate date(int i) {
+        return LocalDate.ofEpochDay(epochDay(i));
+    }
+
+    public double open(int i) {
+        return open[index(i)];
+    }
+
+    public double high(int i) {
+        return high[index(i)];
+    }
+
+    public double low(int i) {
+        return low[index(i)];
+    }
+
+    public double close(int i) {
+        return close[index(i)];
+    }
+
+    public long volume(int i) {
+        return volume[index(i)];
+    }
+
+    public double change(int i) {
+        return change[index(i)];
+    }
+
+    // 取出單筆為 Candle（只在需要 record 的地方使用，例如顯示文字）
+    public Candle get(int i) {
+        int k = index(i);
+        return new Candle(LocalDate.ofEpochDay(epochDay[k]), open[k], high[k], low[k], close[k], volume[k], change[k]);
+    }
+
+    public LocalDate firstDate() {
+        return date(0);
+    }
+
+    public LocalDate lastDate() {
+        return date(size - 1);
+    }
+
+    // 子區間 [from, to)，共用陣列
+    public CandleSeries slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("slice " + from + ".." + to + " of " + size);
+        }
+        if (from == 0 && to == size) {
+            return this;
+        }
+        return new CandleSeries(epochDay, open, high, low, close, volume, change, offset + from, to - from);
+    }
+
+    // 日期 >= date 的部分
+    public CandleSeries since(LocalDate date) {
+        return slice(lowerBound((int) date.toEpochDay()), size);
+    }
+
+    // 日期 < date 的部分
+    public CandleSeries before(LocalDate date) {
+        return slice(0, lowerBound((int) date.toEpochDay()));
+    }
+
+    // 日期 > date 的部分
+    public CandleSeries after(LocalDate date) {
+        return slice(lowerBound((int) date.toEpochDay() + 1), size);
+    }
+
+    // 接上日期較晚的另一段（快取 + 補抓的尾段），只有這裡會複製陣列
+    public CandleSeries concat(CandleSeries tail) {
+        if (tail.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return tail;
+        }
+        Builder b = new Builder(size + tail.size);
+        b.addAll(this);
+        b.addAll(tail);
+        return b.build();
+    }
+
+    // 第一個日期 >= day（epoch day）的索引（二分搜尋）；全部都比 day 早時回傳 size()
+    public int lowerBound(int day) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDay[offset + mid] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // 區間統計：直接掃描基本型別陣列，不經過 Stream 與裝箱；空序列回傳 0
+    public double maxHigh() {
+        return isEmpty() ? 0.0 : max(high);
+    }
+
+    public double minLow() {
+        return isEmpty() ? 0.0 : min(low);
+    }
+
+    public double maxClose() {
+        return isEmpty() ? 0.0 : max(close);
+    }
+
+    public double minClose() {
+        return isEmpty() ? 0.0 : min(close);
+    }
+
+    public long totalVolume() {
+        long total = 0L;
+        for (int k = offset; k < offset + size; k++) {
+            total += volume[k];
+        }
+        return total;
+    }
+
+    // 收盤價複本（給需要 double[] 的計算使用）
+    public double[] closes() {
+        return Arrays.copyOfRange(close, offset, offset + size);
+    }
+
+    // 以 List<Candle> 的形式檢視（唯讀，取值時才建立 Candle）
+    public List<Candle> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Candle get(int i) {
+                return CandleSeries.this.get(i);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private double max(double[] values) {
+        double m = values[offset];
+        for (int k = offset + 1; k < offset + size; k++) {
+            if (values[k] > m) {
+                m = values[k];
+            }
+        }
+        return m;
+    }
+
+    private double min(double[] values) {
+        double m = values[offset];
+        for (int k = offset + 1; k < offset + size; k++) {
+            if (values[k] < m) {
+                m = values[k];
+            }
+        }
+        return m;
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("index " + i + " of " + size);
+        }
+        return offset + i;
+    }
+
+    // 逐筆加入（須依日期遞增），容量不足時倍增
+    public static final class Builder {
+        private int[] epochDay;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private long[] volume;
+        private double[] change;
+        private int size;
+        private boolean built;
+
+        private Builder(int capacity) {
+            int n = Math.max(0, capacity);
+            epochDay = new int[n];
+            open = new double[n];
+            high = new double[n];
+            low = new double[n];
+            close = new double[n];
+            volume = new long[n];
+            change = new double[n];
+        }
+
+        public Builder add(int day, double o, double h, double l, double c, long v, double chg) {
+            if (built) {
+                throw new IllegalStateException("CandleSeries 已建立");
+            }
+            if (size == epochDay.length) {
+                grow();
+            }
+            epochDay[size] = day;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            change[size] = chg;
+            size++;
+            return this;
+        }
+
+        public Builder add(Candle c) {
+            return add((int) c.date().toEpochDay(), c.open(), c.high(), c.low(), c.close(), c.volume(), c.change());
+        }
+
+        public Builder addAll(CandleSeries s) {
+            for (int i = 0; i < s.size; i++) {
+                int k = s.offset + i;
+                add(s.epochDay[k], s.open[k], s.high[k], s.low[k], s.close[k], s.volume[k], s.change[k]);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // 建立後 Builder 不可再使用（陣列直接交給 CandleSeries，不再複製）
+        public CandleSeries build() {
+            built = true;
+            return new CandleSeries(epochDay, open, high, low, close, volume, change, 0, size);
+        }
+
+        private void grow() {
+            int n = Math.max(16, epochDay.length * 2);
+            epochDay = Arrays.copyOf(epochDay, n);
+            open = Arrays.copyOf(open, n);
+            high = Arrays.copyOf(high, n);
+            low = Arrays.copyOf(low, n);
+            close = Arrays.copyOf(close, n);
+            volume = Arrays.copyOf(volume, n);
+            change = Arrays.copyOf(change, n);
+        }
+    }
+}
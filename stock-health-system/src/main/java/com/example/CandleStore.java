@@ -0,0 +1,207 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+// 本機日 K 快取：每檔股票一個固定長度的二進位檔，只存「已收盤」的 K 棒（收盤後不會再變動），採附加寫入
+// 檔案格式：
+//   檔頭 16 bytes：MAGIC(int)、VERSION(int)、已涵蓋起日(epochDay int)、已涵蓋迄日(epochDay int)
+//   資料列 52 bytes：日期(epochDay int)、開高低收(double x4)、成交量(long)、漲跌(double)
+// 「已涵蓋」代表這段日期都問過 Fugle 了（含假日沒有 K 棒的日子），之後只需補抓迄日之後的尾段
+public class CandleStore {
+    private static final int MAGIC = 0x46434E44; // "FCND"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ROW_SIZE = 4 + 8 * 4 + 8 + 8;
+
+    // 已快取的區段：coveredFrom ~ coveredTo 之間的 K 棒（依日期遞增）
+    public record Segment(LocalDate coveredFrom, LocalDate coveredTo, CandleSeries candles) {}
+
+    private final Path dir;
+
+    public CandleStore(Path dir) {
+        this.dir = dir;
+    }
+
+    // 預設放在使用者家目錄下，避免寫入安裝目錄（Program Files 通常沒有寫入權限）
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".stock-health", "candles");
+    }
+
+    // 讀取整個快取檔，檔案不存在或格式不符時回傳 null（格式不符的檔案直接刪除，下次重新下載）
+    public synchronized Segment load(String symbol) {
+        Path file = fileOf(symbol);
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE || (size - HEADER_SIZE) % ROW_SIZE != 0 || size > Integer.MAX_VALUE) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+
+            // 一次讀進整個檔案再逐列解析，避免逐筆 I/O
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining() && ch.read(buf) >= 0) {}
+            buf.flip();
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            LocalDate coveredFrom = LocalDate.ofEpochDay(buf.getInt());
+            LocalDate coveredTo = LocalDate.ofEpochDay(buf.getInt());
+
+            int rows = (int) ((size - HEADER_SIZE) / ROW_SIZE);
+            CandleSeries.Builder candles = CandleSeries.builder(rows);
+            for (int i = 0; i < rows; i++) {
+                candles.add(
+                        buf.getInt(),    // 日期（epochDay）
+                        buf.getDouble(), // 開盤價
+                        buf.getDouble(), // 最高價
+                        buf.getDouble(), // 最低價
+                        buf.getDouble(), // 收盤價
+                        buf.getLong(),   // 成交量
+                        buf.getDouble()  // 漲跌
+                );
+            }
+            return new Segment(coveredFrom, coveredTo, candles.build());
+        } catch (IOException e) {
+            return null; // 快取讀不到就當作沒有快取，改走網路
+        }
+    }
+
+    // 整個重寫（第一次下載，或要求的起日比快取更早時）：先寫暫存檔再搬移，避免寫到一半留下壞檔
+    public synchronized void replace(String symbol, LocalDate coveredFrom, LocalDate coveredTo, CandleSeries candles) {
+        Path file = fileOf(symbol);
+        if (file == null) {
+            return;
+        }
+
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, symbol, ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + candles.size() * ROW_SIZE);
+                buf.putInt(MAGIC).putInt(VERSION)
+                        .putInt((int) coveredFrom.toEpochDay())
+                        .putInt((int) coveredTo.toEpochDay());
+                putRows(buf, candles);
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+        } catch (IOException e) {
+            System.err.println("無法寫入 K 線快取: " + e.getMessage());
+        } finally {
+            // 寫入或搬移失敗時清掉暫存檔，避免在快取目錄裡越積越多
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // 附加尾段：只寫入日期晚於快取最後一筆的 K 棒，最後才更新檔頭的已涵蓋迄日
+    // （若中途失敗，迄日沒有前進，下次會重新補抓同一段）
+    public synchronized void append(String symbol, LocalDate coveredTo, CandleSeries candles) {
+        Path file = fileOf(symbol);
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+
+        // 只讀檔頭與最後一列的日期，不必為了找最後一筆把整個檔案解析一遍
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE || (size - HEADER_SIZE) % ROW_SIZE != 0) {
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(ch, header, 0);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return;
+            }
+            LocalDate coveredFrom = LocalDate.ofEpochDay(header.getInt());
+            LocalDate currentTo = LocalDate.ofEpochDay(header.getInt());
+
+            LocalDate last;
+            if (size == HEADER_SIZE) {
+                last = coveredFrom.minusDays(1);
+            } else {
+                ByteBuffer lastDay = ByteBuffer.allocate(4);
+                readFully(ch, lastDay, size - ROW_SIZE);
+                last = LocalDate.ofEpochDay(lastDay.getInt());
+            }
+            CandleSeries newer = candles.after(last);
+
+            if (!newer.isEmpty()) {
+                ByteBuffer rows = ByteBuffer.allocate(newer.size() * ROW_SIZE);
+                putRows(rows, newer);
+                rows.flip();
+                long pos = size;
+                while (rows.hasRemaining()) {
+                    pos += ch.write(rows, pos);
+                }
+            }
+            if (coveredTo.isAfter(currentTo)) {
+                ByteBuffer to = ByteBuffer.allocate(4).putInt((int) coveredTo.toEpochDay());
+                to.flip();
+                ch.write(to, 12);
+            }
+        } catch (IOException e) {
+            System.err.println("無法寫入 K 線快取: " + e.getMessage());
+        }
+    }
+
+    // 從指定位置讀滿整個 buffer，讀完後 flip 以便取值
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) {
+                throw new IOException("快取檔長度不足");
+            }
+            pos += n;
+        }
+        buf.flip();
+    }
+
+    private static void putRows(ByteBuffer buf, CandleSeries candles) {
+        for (int i = 0; i < candles.size(); i++) {
+            buf.putInt(candles.epochDay(i))
+                    .putDouble(candles.open(i))
+                    .putDouble(candles.high(i))
+                    .putDouble(candles.low(i))
+                    .putDouble(candles.close(i))
+                    .putLong(candles.volume(i))
+                    .putDouble(candles.change(i));
+        }
+    }
+
+    // 股票代號只允許英數字，避免奇怪的輸入變成路徑（例如 "../"）
+    private Path fileOf(String symbol) {
+        if (symbol == null || !symbol.matches("[A-Za-z0-9]+")) {
+            return null;
+        }
+        return dir.resolve(symbol + ".bin");
+    }
+}
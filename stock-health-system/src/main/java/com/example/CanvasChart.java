@@ -0,0 +1,422 @@
+package com.example;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// 原生 JavaFX 折線圖（Canvas）：RSI、MACD、外資空口數直接畫在 JavaFX 執行緒上，不經過 SwingNode / JFreeChart（K 線圖見 CandleChart）
+// 每個畫面常駐一個，查詢時只換資料再重畫；資料直接引用 double[]，不再為每個點建立字串類別與 Number 物件
+// X 軸依資料順序等距排列（只有交易日，沒有假日空白），日期標籤依可用寬度自動間隔顯示；滑鼠移到圖上顯示該日數值
+// 滾輪以滑鼠位置為中心縮放、拖曳平移、雙擊還原；可見的資料點多於像素時經 Downsampler（LTTB）降採樣，點數上限取自目前的圖表寬度
+final class CanvasChart extends Region {
+    // 一條折線：名稱（圖例）、顏色、線寬與各點的值（與 X 軸索引一一對應）
+    record Line(String name, Color color, double width, double[] values) {}
+
+    // 字型、顏色與邊界（CandleChart 共用）
+    static final Font TITLE_FONT = Font.font("Microsoft YaHei", FontWeight.BOLD, 16);
+    static final Font LABEL_FONT = Font.font("Microsoft YaHei", FontWeight.BOLD, 13);
+    static final Font TICK_FONT = Font.font("Microsoft YaHei", 11);
+    static final Color PLOT_BACKGROUND = Color.rgb(235, 235, 235);
+    static final Color GRID = Color.WHITE;
+
+    // 繪圖區與畫布邊緣的距離（留給標題、Y 軸刻度、旋轉後的日期標籤）
+    static final double LEFT = 72;
+    static final double RIGHT = 16;
+    static final double TOP = 40;
+    private static final double BOTTOM = 86;
+
+    private static final int MIN_VISIBLE = 10; // 最多放大到只顯示幾筆資料
+
+    private final Canvas canvas = new Canvas();
+    private final String xLabel;
+    private final String yLabel;
+    private boolean inverted; // Y 軸倒置（數值越小越在上方）
+
+    private String title = "";
+    private int size;
+    private IntFunction<String> labels = i -> "";
+    private List<Line> lines = List.of();
+    private double lower;
+    private double upper = 1;
+    private int hover = -1; // 滑鼠所在的資料索引，-1 代表不在繪圖區
+    private double dragX = Double.NaN; // 拖曳平移的起點（X 座標）與當時的可見範圍起點
+    private int dragFrom;
+    private boolean dirty; // 已請求重畫、等待下一個 pulse
+
+    // 目前可見的資料範圍 [viewFrom, viewTo) 與它的 Y 軸範圍（未縮放時沿用呼叫端給的 lower / upper）
+    private int viewFrom;
+    private int viewTo;
+    private double viewLower;
+    private double viewUpper = 1;
+
+    // 降採樣結果快取：可見範圍與點數上限不變時（例如滑鼠移動只重畫提示框）直接沿用
+    private int[][] sampledLines;
+    private long sampledKey = -1;
+
+    CanvasChart(String xLabel, String yLabel) {
+        this.xLabel = xLabel;
+        this.yLabel = yLabel;
+        getChildren().add(canvas);
+        setMinSize(0, 0);
+        setPrefSize(695, 400);
+
+        canvas.setOnMouseMoved(e -> setHover(indexAt(e.getX())));
+        canvas.setOnMouseExited(e -> setHover(-1));
+        canvas.setOnScroll(e -> {
+            if (e.getDeltaY() != 0) {
+                zoom(e.getDeltaY() > 0 ? 0.8 : 1.25, e.getX());
+            }
+        });
+        canvas.setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragFrom = viewFrom;
+        });
+        canvas.setOnMouseDragged(e -> pan(e.getX()));
+        canvas.setOnMouseReleased(e -> dragX = Double.NaN);
+        canvas.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) {
+                setView(0, size);
+            }
+        });
+    }
+
+    void setInverted(boolean inverted) {
+        this.inverted = inverted;
+        requestDraw();
+    }
+
+    // 折線圖：所有 Line 的 values 長度必須等於 labels 的數量；lower / upper 為完整資料的 Y 軸範圍（含留白）
+    void setLines(String title, List<String> labels, List<Line> lines, double lower, double upper) {
+        if (!(upper > lower)) { // 所有值都相同時，Y 軸至少要有一點範圍
+            lower -= 1;
+            upper += 1;
+        }
+        this.title = title;
+        this.size = labels.size();
+        this.labels = labels::get;
+        this.lines = List.copyOf(lines);
+        this.lower = lower;
+        this.upper = upper;
+        this.hover = -1;
+        setView(0, size);
+    }
+
+    // 縮放：可見筆數乘上 factor，滑鼠下的資料位置在縮放前後保持不動
+    private void zoom(double factor, double x) {
+        int visible = viewTo - viewFrom;
+        int target = (int) Math.max(Math.min(MIN_VISIBLE, size), Math.min(size, Math.round(visible * factor)));
+        if (target == visible) {
+            return;
+        }
+        double plotWidth = canvas.getWidth() - LEFT - RIGHT;
+        double ratio = Math.max(0, Math.min(1, (x - LEFT) / plotWidth));
+        double anchor = viewFrom + ratio * visible;
+        int from = (int) Math.round(anchor - ratio * target);
+        from = Math.max(0, Math.min(size - target, from));
+        setView(from, from + target);
+    }
+
+    // 拖曳平移：移動的像素換算成筆數
+    private void pan(double x) {
+        int visible = viewTo - viewFrom;
+        double plotWidth = canvas.getWidth() - LEFT - RIGHT;
+        if (Double.isNaN(dragX) || visible >= size || plotWidth <= 0) {
+            return;
+        }
+        int from = dragFrom - (int) Math.round((x - dragX) / plotWidth * visible);
+        from = Math.max(0, Math.min(size - visible, from));
+        if (from != viewFrom) {
+            setView(from, from + visible);
+        }
+    }
+
+    private void setView(int from, int to) {
+        viewFrom = from;
+        viewTo = to;
+        sampledKey = -1;
+        if (hover < from || hover >= to) {
+            hover = -1;
+        }
+        if (from == 0 && to == size) {
+            viewLower = lower;
+            viewUpper = upper;
+        } else {
+            // 放大後 Y 軸只看可見範圍，上下各留 5%
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                for (Line line : lines) {
+                    min = Math.min(min, line.values()[i]);
+                    max = Math.max(max, line.values()[i]);
+                }
+            }
+            double padding = max > min ? (max - min) * 0.05 : 1;
+            viewLower = min - padding;
+            viewUpper = max + padding;
+        }
+        requestDraw();
+    }
+
+    // 重畫只做標記，真正的繪製集中在下一個 pulse 的 layoutChildren：
+    // 同一個 frame 內的多次滑鼠移動、滾輪、拖曳與視窗尺寸變化只會畫一次
+    private void requestDraw() {
+        if (!dirty) {
+            dirty = true;
+            setNeedsLayout(true); // 只標記自己需要排版（不驚動父容器），並排入下一個 pulse
+        }
+    }
+
+    // 畫布跟著 Region 的大小走；JavaFX 在 pulse 排版時才呼叫，尺寸變化與其他重畫請求合併成一次
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            dirty = true;
+        }
+        if (dirty) {
+            dirty = false;
+            draw();
+        }
+    }
+
+    private void setHover(int index) {
+        if (index != hover) {
+            hover = index;
+            requestDraw();
+        }
+    }
+
+    private int indexAt(double x) {
+        double plotWidth = canvas.getWidth() - LEFT - RIGHT;
+        int visible = viewTo - viewFrom;
+        if (visible <= 0 || x < LEFT || x >= LEFT + plotWidth) {
+            return -1;
+        }
+        return Math.min(viewTo - 1, viewFrom + (int) ((x - LEFT) / (plotWidth / visible)));
+    }
+
+    private void draw() {
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFill(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+
+        double plotWidth = width - LEFT - RIGHT;
+        double plotHeight = height - TOP - BOTTOM;
+        if (plotWidth < 20 || plotHeight < 20) {
+            return;
+        }
+
+        // 標題
+        g.setFill(Color.BLACK);
+        g.setFont(TITLE_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.CENTER);
+        g.fillText(title, width / 2, TOP / 2);
+
+        g.setFill(PLOT_BACKGROUND);
+        g.fillRect(LEFT, TOP, plotWidth, plotHeight);
+        drawYAxis(g, plotHeight);
+        if (viewTo <= viewFrom) {
+            return;
+        }
+        double slot = plotWidth / (viewTo - viewFrom); // 每個資料點佔的寬度
+        drawXAxis(g, slot, plotHeight);
+        sample(plotWidth);
+
+        // 資料只畫在繪圖區內
+        g.save();
+        g.beginPath();
+        g.rect(LEFT, TOP, plotWidth, plotHeight);
+        g.clip();
+        for (int l = 0; l < lines.size(); l++) {
+            drawLine(g, lines.get(l), sampledLines[l], slot, plotHeight);
+        }
+        g.restore();
+
+        drawLegend(g, plotWidth);
+        if (hover >= 0) {
+            drawHover(g, slot, plotWidth, plotHeight);
+        }
+    }
+
+    private double yOf(double value, double plotHeight) {
+        double ratio = (value - viewLower) / (viewUpper - viewLower);
+        return inverted ? TOP + ratio * plotHeight : TOP + (1 - ratio) * plotHeight;
+    }
+
+    private double xOf(int index, double slot) {
+        return LEFT + (index - viewFrom + 0.5) * slot;
+    }
+
+    // 依目前的可見範圍與繪圖區寬度準備降採樣結果：最多每個像素一點
+    private void sample(double plotWidth) {
+        int budget = (int) plotWidth;
+        long key = ((long) viewFrom << 40) ^ ((long) viewTo << 20) ^ budget;
+        if (key == sampledKey) {
+            return;
+        }
+        sampledKey = key;
+
+        sampledLines = new int[lines.size()][];
+        for (int l = 0; l < lines.size(); l++) {
+            sampledLines[l] = Downsampler.lttb(lines.get(l).values(), viewFrom, viewTo, budget);
+        }
+    }
+
+    // Y 軸：約 6 個整齊的刻度（1、2、5 × 10 的次方）與格線，軸名稱旋轉 90 度放在最左邊
+    private void drawYAxis(GraphicsContext g, double plotHeight) {
+        double step = niceStep((viewUpper - viewLower) / 6);
+        String format = step >= 1 ? "%,.0f" : step >= 0.1 ? "%.1f" : "%.2f";
+        g.setFont(TICK_FONT);
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.CENTER);
+        g.setStroke(GRID);
+        g.setLineWidth(1);
+        for (double v = Math.ceil(viewLower / step) * step; v <= viewUpper; v += step) {
+            double y = Math.round(yOf(v, plotHeight)) + 0.5;
+            g.strokeLine(LEFT, y, canvas.getWidth() - RIGHT, y);
+            g.setFill(Color.DIMGRAY);
+            g.fillText(String.format(format, v), LEFT - 6, y);
+        }
+
+        g.save();
+        g.setFill(Color.BLACK);
+        g.setFont(LABEL_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.translate(14, TOP + plotHeight / 2);
+        g.rotate(-90);
+        g.fillText(yLabel, 0, 0);
+        g.restore();
+    }
+
+    // X 軸：日期標籤旋轉 90 度，太密時每隔幾筆才標一次，避免重疊
+    private void drawXAxis(GraphicsContext g, double slot, double plotHeight) {
+        int every = Math.max(1, (int) Math.ceil(14 / slot));
+        double baseline = TOP + plotHeight + 6;
+        g.setFont(TICK_FONT);
+        g.setFill(Color.DIMGRAY);
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.setTextBaseline(VPos.CENTER);
+        for (int i = viewTo - 1; i >= viewFrom; i -= every) { // 從最新一筆往回標，確保最後一天一定有標籤
+            g.save();
+            g.translate(xOf(i, slot), baseline);
+            g.rotate(-90);
+            g.fillText(labels.apply(i), 0, 0);
+            g.restore();
+        }
+
+        g.setFill(Color.BLACK);
+        g.setFont(LABEL_FONT);
+        g.setTextAlign(TextAlignment.CENTER);
+        g.setTextBaseline(VPos.BOTTOM);
+        g.fillText(xLabel, LEFT + (canvas.getWidth() - LEFT - RIGHT) / 2, canvas.getHeight() - 2);
+    }
+
+    // indices：降採樣後要畫的資料索引（點數不多時就是可見範圍內的每一點）
+    private void drawLine(GraphicsContext g, Line line, int[] indices, double slot, double plotHeight) {
+        double[] values = line.values();
+        g.setStroke(line.color());
+        g.setLineWidth(line.width());
+        g.beginPath();
+        for (int k = 0; k < indices.length; k++) {
+            int i = indices[k];
+            double x = xOf(i, slot);
+            double y = yOf(values[i], plotHeight);
+            if (k == 0) {
+                g.moveTo(x, y);
+            } else {
+                g.lineTo(x, y);
+            }
+        }
+        g.stroke();
+
+        // 點少時加上資料點標記，與原本 JFreeChart 的線圖外觀一致
+        if (slot >= 12) {
+            g.setFill(line.color());
+            for (int i : indices) {
+                g.fillRect(xOf(i, slot) - 3, yOf(values[i], plotHeight) - 3, 6, 6);
+            }
+        }
+    }
+
+    // 圖例：繪圖區右上角，每條折線一個色塊 + 名稱
+    private void drawLegend(GraphicsContext g, double plotWidth) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        g.setFont(TICK_FONT);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.setTextBaseline(VPos.CENTER);
+        double x = LEFT + plotWidth - 8;
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            Line line = lines.get(i);
+            x -= line.name().length() * 12 + 24;
+            g.setFill(line.color());
+            g.fillRect(x, TOP + 10, 12, 4);
+            g.setFill(Color.BLACK);
+            g.fillText(line.name(), x + 16, TOP + 12);
+        }
+    }
+
+    // 滑鼠所在日期：垂直參考線 + 數值提示框
+    private void drawHover(GraphicsContext g, double slot, double plotWidth, double plotHeight) {
+        double x = Math.round(xOf(hover, slot)) + 0.5;
+        g.setStroke(Color.GRAY);
+        g.setLineWidth(1);
+        g.setLineDashes(4, 4);
+        g.strokeLine(x, TOP, x, TOP + plotHeight);
+        g.setLineDashes();
+
+        List<String> text = new ArrayList<>();
+        text.add(labels.apply(hover));
+        for (Line line : lines) {
+            text.add(String.format("%s：%.2f", line.name(), line.values()[hover]));
+        }
+
+        double boxWidth = 0;
+        for (String s : text) {
+            boxWidth = Math.max(boxWidth, s.length() * 8.5);
+        }
+        boxWidth += 16;
+        double boxHeight = text.size() * 16 + 10;
+        double boxX = x + 10 + boxWidth > LEFT + plotWidth ? x - 10 - boxWidth : x + 10; // 靠右邊時改放在參考線左側
+        double boxY = TOP + 8;
+
+        g.setFill(Color.rgb(255, 255, 255, 0.92));
+        g.fillRect(boxX, boxY, boxWidth, boxHeight);
+        g.setStroke(Color.GRAY);
+        g.strokeRect(boxX + 0.5, boxY + 0.5, boxWidth, boxHeight);
+        g.setFill(Color.BLACK);
+        g.setFont(TICK_FONT);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.setTextBaseline(VPos.TOP);
+        for (int i = 0; i < text.size(); i++) {
+            g.fillText(text.get(i), boxX + 8, boxY + 5 + i * 16);
+        }
+    }
+
+    // 刻度間距取 1、2、5 × 10^n 中最接近 raw 的值
+    static double niceStep(double raw) {
+        if (!(raw > 0) || Double.isInfinite(raw)) {
+            return 1;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / magnitude;
+        double nice = fraction < 1.5 ? 1 : fraction < 3 ? 2 : fraction < 7 ? 5 : 10;
+        return nice * magnitude;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example;
+
+// 圖表降採樣：資料點遠多於畫面像素時，只挑出畫得出差異的點，繪圖成本跟著像素數而不是資料量
+//   折線：LTTB（Largest-Triangle-Three-Buckets），每個區段保留與前後點圍成三角形面積最大的點，保留走勢的轉折與尖峰
+//   K 棒：min-max 分桶（CandleChart），把相鄰幾天合併成一根（第一天開盤、最後一天收盤、區段最高與最低），極值不會被抹掉
+// 兩者都只回傳資料索引，X 座標由呼叫端換算（CanvasChart 依交易日等距，CandleChart 依日曆日）
+final class Downsampler {
+    private Downsampler() {}
+
+    // 從 values[from, to) 挑出最多 threshold 個點的索引（遞增，含第一點與最後一點）；點數本來就不多時原樣回傳
+    static int[] lttb(double[] values, int from, int to, int threshold) {
+        int n = to - from;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+
+        int[] picked = new int[threshold];
+        double bucketSize = (double) (n - 2) / (threshold - 2); // 第一點與最後一點固定保留，中間平均分桶
+        int a = from; // 上一個選中的點
+        picked[0] = from;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // 下一桶的平均點，當作三角形的第三個頂點
+            int avgStart = from + (int) ((bucket + 1) * bucketSize) + 1;
+            int avgEnd = Math.min(from + (int) ((bucket + 2) * bucketSize) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += j;
+                avgY += values[j];
+            }
+            int avgCount = avgEnd - avgStart;
+            if (avgCount > 0) {
+                avgX /= avgCount;
+                avgY /= avgCount;
+            } else {
+                avgX = to - 1;
+                avgY = values[to - 1];
+            }
+
+            // 目前這一桶裡，與 a、平均點圍成面積最大的點
+            int rangeStart = from + (int) (bucket * bucketSize) + 1;
+            int rangeEnd = from + (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((a - avgX) * (values[j] - values[a]) - (a - j) * (avgY - values[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            picked[bucket + 1] = next;
+            a = next;
+        }
+
+        picked[threshold - 1] = to - 1;
+        return picked;
+    }
+
+    // 把 [from, to) 平均切成 buckets 桶，回傳 buckets + 1 個邊界（第 b 桶為 [bounds[b], bounds[b + 1])）；桶數不超過資料數
+    static int[] buckets(int from, int to, int buckets) {
+        int n = to - from;
+        int count = Math.max(1, Math.min(buckets, n));
+        int[] bounds = new int[count + 1];
+        for (int b = 0; b <= count; b++) {
+            bounds[b] = from + (int) ((long) n * b / count);
+        }
+        return bounds;
+    }
+}
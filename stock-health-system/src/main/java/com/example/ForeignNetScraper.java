@@ -0,0 +1,237 @@
+package com.example;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 外資台指期淨空口數爬蟲（stock.wearn.com/taifexphoto.asp）
+// 解析後的資料依日期存到本機檔（~/.stock-health/foreign-net.bin），每次抓到的新資料與舊資料合併，歷史會越存越長
+// 只有「上次抓取之後來源可能有新資料」時才連網：期交所在收盤後公布當日資料，同一個公布時點之後抓到當日資料就不再抓
+// 其餘時候直接回傳本機資料，重複查看不必再等網頁下載與解析，也不會一直打對方網站
+// 檔案格式：
+//   檔頭 16 bytes：MAGIC(int)、VERSION(int)、上次成功抓取的時間(epoch millis long)
+//   資料列 8 bytes：日期(epochDay int)、淨空口數(int)，依日期遞增
+public class ForeignNetScraper {
+    private static final int MAGIC = 0x464E4554; // "FNET"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int ROW_SIZE = 8;
+
+    private static final ZoneId TAIPEI = ZoneId.of("Asia/Taipei");
+    private static final Pattern ROC_DATE = Pattern.compile("(\\d{3})/(\\d{2})/(\\d{2})"); // 民國年日期，例如 114/11/21
+
+    public record Row(LocalDate date, int net) {}
+
+    // rows 依日期遞增；stale 代表這次連網失敗，回傳的是先前存下的資料
+    public record Result(List<Row> rows, boolean stale, String warning) {}
+
+    private final Path file;
+    private final String url;
+    private final int timeoutMillis;
+    private final LocalTime publishTime;
+    private final HttpRecorder recorder; // 錄製模式（設定 capture.dir）時不為 null
+
+    // 連網與讀寫檔案都在虛擬執行緒上進行，不佔用 common pool
+    private final ExecutorService ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("foreign-net-", 0).factory());
+    private CompletableFuture<Result> inFlight; // 連點按鈕時共用同一次查詢
+
+    public ForeignNetScraper() {
+        this(AppSettings.load());
+    }
+
+    public ForeignNetScraper(AppSettings settings) {
+        this.file = settings.getPath("foreign-net.cache-file", Paths.get(System.getProperty("user.home"), ".stock-health", "foreign-net.bin"));
+        this.url = settings.get("foreign-net.url", "https://stock.wearn.com/taifexphoto.asp");
+        this.timeoutMillis = settings.getInt("foreign-net.timeout-ms", 12000);
+        LocalTime publish;
+        try {
+            publish = LocalTime.parse(settings.get("foreign-net.publish-time", "15:30"));
+        } catch (DateTimeParseException e) {
+            System.err.println("設定值格式錯誤（foreign-net.publish-time），改用預設值 15:30");
+            publish = LocalTime.of(15, 30);
+        }
+        this.publishTime = publish;
+        this.recorder = HttpRecorder.fromSettings(settings);
+    }
+
+    public synchronized CompletableFuture<Result> fetchAsync() {
+        if (inFlight == null || inFlight.isDone()) {
+            inFlight = CompletableFuture.supplyAsync(this::load, ioExecutor);
+        }
+        return inFlight.copy();
+    }
+
+    public void close() {
+        ioExecutor.shutdownNow();
+    }
+
+    private Result load() {
+        Stored stored = read();
+        ZonedDateTime now = ZonedDateTime.now(TAIPEI);
+        if (stored != null && !mayHaveNewData(stored.fetchedAt(), now)) {
+            return new Result(toRows(stored.rows()), false, null);
+        }
+
+        TreeMap<LocalDate, Integer> merged = stored != null ? stored.rows() : new TreeMap<>();
+        try {
+            merged.putAll(scrape());
+        } catch (IOException | RuntimeException e) {
+            if (stored == null || stored.rows().isEmpty()) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return new Result(toRows(stored.rows()), true, e.getMessage()); // 網站連不上時先顯示上次存下的資料
+        }
+        // 網站常比期交所公布晚一些才更新：抓到的資料還沒有最近公布日那一列時，不推進抓取時間，下次查詢會再抓一次
+        long fetchedAt = !merged.isEmpty() && !merged.lastKey().isBefore(latestPublishDate(now))
+                ? Instant.now().toEpochMilli()
+                : stored != null ? stored.fetchedAt() : 0L;
+        write(fetchedAt, merged);
+        return new Result(toRows(merged), false, null);
+    }
+
+    // 最近一個公布時點（今天或之前最後一個平日的 publishTime）晚於上次抓取時間，才可能有新資料
+    // 國定假日沒有當天的資料，那天每次查詢都會重抓，直到下一個交易日的資料出現
+    private boolean mayHaveNewData(long fetchedAt, ZonedDateTime now) {
+        long latestPublish = latestPublishDate(now).atTime(publishTime).atZone(TAIPEI).toInstant().toEpochMilli();
+        return fetchedAt < latestPublish;
+    }
+
+    // 今天或之前最後一個已過公布時點的平日
+    private LocalDate latestPublishDate(ZonedDateTime now) {
+        LocalDate day = now.toLocalTime().isBefore(publishTime) ? now.toLocalDate().minusDays(1) : now.toLocalDate();
+        while (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            day = day.minusDays(1);
+        }
+        return day;
+    }
+
+    // 下載並解析網頁：逐列走訪一次，日期用預先編譯的 Pattern 比對後直接換算成西元日期
+    private Map<LocalDate, Integer> scrape() throws IOException {
+        Connection.Response response = Jsoup.connect(url)
+                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
+                .timeout(timeoutMillis)
+                .execute();
+        if (recorder != null) {
+            URL source = response.url();
+            recorder.save(new HttpRecorder.Exchange("GET", HttpRecorder.target(source.getPath(), source.getQuery()),
+                    response.statusCode(), response.contentType() != null ? response.contentType() : "", response.bodyAsBytes()));
+        }
+        Document doc = response.parse();
+
+        Element table = doc.selectFirst("table.taifexphoto");
+        if (table == null) {
+            throw new IOException("無法找到外資空口數表格（網站可能改版）");
+        }
+
+        Map<LocalDate, Integer> rows = new TreeMap<>();
+        Elements trs = table.select("tr:gt(1)");
+        for (Element tr : trs) {
+            Elements tds = tr.select("td");
+            if (tds.size() < 9) {
+                continue;
+            }
+            Matcher m = ROC_DATE.matcher(tds.get(0).text().trim());
+            if (!m.matches()) {
+                continue;
+            }
+            try {
+                LocalDate date = LocalDate.of(1911 + Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+                rows.put(date, Integer.parseInt(tds.get(5).text().trim().replace(",", "")));
+            } catch (RuntimeException ignored) {} // 日期或數字格式不對的列略過
+        }
+
+        if (rows.isEmpty()) {
+            throw new IOException("未解析到任何外資空口數資料");
+        }
+        return rows;
+    }
+
+    private static List<Row> toRows(TreeMap<LocalDate, Integer> map) {
+        List<Row> rows = new ArrayList<>(map.size());
+        map.forEach((date, net) -> rows.add(new Row(date, net)));
+        return rows;
+    }
+
+    private record Stored(long fetchedAt, TreeMap<LocalDate, Integer> rows) {}
+
+    // 讀取本機檔，不存在或格式不符時回傳 null（格式不符的檔案直接刪除，下次重新抓取）
+    private synchronized Stored read() {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length < HEADER_SIZE || (bytes.length - HEADER_SIZE) % ROW_SIZE != 0) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            long fetchedAt = buf.getLong();
+            TreeMap<LocalDate, Integer> rows = new TreeMap<>();
+            while (buf.hasRemaining()) {
+                rows.put(LocalDate.ofEpochDay(buf.getInt()), buf.getInt());
+            }
+            return new Stored(fetchedAt, rows);
+        } catch (IOException e) {
+            return null; // 讀不到就當作沒有本機資料，改走網路
+        }
+    }
+
+    // 整個重寫：先寫暫存檔再搬移，避免寫到一半留下壞檔
+    private synchronized void write(long fetchedAt, TreeMap<LocalDate, Integer> rows) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "foreign-net", ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + rows.size() * ROW_SIZE);
+                buf.putInt(MAGIC).putInt(VERSION).putLong(fetchedAt);
+                rows.forEach((date, net) -> buf.putInt((int) date.toEpochDay()).putInt(net));
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("無法寫入外資空口數快取: " + e.getMessage());
+        }
+    }
+}
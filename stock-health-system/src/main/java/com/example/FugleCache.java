@@ -0,0 +1,180 @@
+package com.example;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Fugle API 回應快取：兩層
+//   記憶體 LRU（應用層攔截器）：同一個畫面幾秒內重複查詢直接回傳，不經過 OkHttp 的連線與磁碟
+//   磁碟快取（OkHttp Cache）：重開程式後仍可使用；過期的項目若帶有 ETag / Last-Modified，OkHttp 會自動改送條件式請求（304 時沿用快取內容）
+// Fugle 回應本身不一定帶快取標頭，所以由網路攔截器依端點類別補上 max-age：
+//   盤中（/intraday/，或歷史／技術指標的查詢區間包含今天）→ 幾秒；已收盤的歷史區間 → 幾天
+// 離線模式：不連網，只回放快取（記憶體項目不論是否過期、磁碟以 FORCE_CACHE 讀取），沒有快取時回應 504
+// OkHttp 磁碟快取以 URL 為鍵，不含 X-API-KEY 標頭：送進快取前在 URL 加上 API Key 雜湊值的 fragment（#k=...），
+// 不同金鑰各自快取、不會互相回放；fragment 不會送到伺服器。只有成功的回應會被快取
+final class FugleCache {
+    private final Cache disk;
+    private final long intradayTtlSeconds;
+    private final long historicalTtlSeconds;
+    private final int maxEntryBytes;
+    private final Map<String, Entry> memory;
+    private volatile boolean offline;
+
+    // 記憶體中的一筆回應（只存 body 與 Content-Type）
+    private record Entry(byte[] body, MediaType contentType, long expiresAt) {}
+
+    FugleCache(AppSettings settings) {
+        Path dir = settings.getPath("fugle.cache.dir", Paths.get(System.getProperty("user.home"), ".stock-health", "http-cache"));
+        long diskBytes = settings.getLong("fugle.cache.disk-size-mb", 50) * 1024 * 1024;
+        this.disk = diskBytes > 0 ? new Cache(dir.toFile(), diskBytes) : null;
+        this.intradayTtlSeconds = settings.getLong("fugle.cache.ttl.intraday-seconds", 5);
+        this.historicalTtlSeconds = TimeUnit.DAYS.toSeconds(settings.getLong("fugle.cache.ttl.historical-days", 1));
+        this.maxEntryBytes = settings.getInt("fugle.cache.memory-max-entry-kb", 512) * 1024;
+        this.offline = settings.getBoolean("fugle.offline", false);
+
+        int maxEntries = settings.getInt("fugle.cache.memory-entries", 200);
+        // accessOrder = true：每次讀取都移到最後，超過上限時移除最久沒用到的項目
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    Cache disk() {
+        return disk;
+    }
+
+    boolean isOffline() {
+        return offline;
+    }
+
+    void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    // 應用層攔截器：先查記憶體，沒有才往下（磁碟快取 → 網路）
+    Interceptor memoryInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            if (!"GET".equals(request.method())) {
+                return chain.proceed(request);
+            }
+
+            request = withKeyFragment(request);
+            String key = request.url().toString();
+            Entry hit;
+            synchronized (memory) {
+                hit = memory.get(key);
+            }
+            if (hit != null && (offline || hit.expiresAt() > System.currentTimeMillis())) {
+                return new Response.Builder()
+                        .request(request)
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(hit.body(), hit.contentType()))
+                        .build();
+            }
+
+            if (offline) {
+                request = request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
+            }
+            Response response = chain.proceed(request);
+
+            long ttl = ttlSeconds(request.url());
+            if (response.code() == 200 && ttl > 0 && maxEntryBytes > 0 && fitsInMemory(request.url(), response)) {
+                // peekBody 只複製緩衝區，不會消耗原本的 body（呼叫端仍可串流讀取）；超過上限的大回應不放進記憶體
+                ResponseBody peek = response.peekBody(maxEntryBytes + 1L);
+                byte[] body = peek.bytes();
+                if (body.length <= maxEntryBytes) {
+                    Entry entry = new Entry(body, peek.contentType(), System.currentTimeMillis() + ttl * 1000);
+                    synchronized (memory) {
+                        memory.put(key, entry);
+                    }
+                }
+            }
+            return response;
+        };
+    }
+
+    // 網路攔截器：依端點類別覆寫 Cache-Control，讓 OkHttp 磁碟快取知道這份回應可以保存多久（304 也要更新，延長快取期限）
+    Interceptor ttlInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            long ttl = ttlSeconds(request.url());
+            if (ttl <= 0 || !(response.isSuccessful() || response.code() == 304)) {
+                return response;
+            }
+            return response.newBuilder()
+                    .header("Cache-Control", "max-age=" + ttl)
+                    .removeHeader("Pragma")
+                    .removeHeader("Expires")
+                    .build();
+        };
+    }
+
+    // 端點類別：盤中資料只快取幾秒；歷史／技術指標若查詢迄日在今天以前（已收盤、不會再變動）才快取幾天
+    private long ttlSeconds(HttpUrl url) {
+        String path = url.encodedPath();
+        if (path.contains("/intraday/")) {
+            return intradayTtlSeconds;
+        }
+        if (path.contains("/historical/") || path.contains("/technical/")) {
+            String to = url.queryParameter("to");
+            try {
+                if (to != null && LocalDate.parse(to).isBefore(LocalDate.now())) {
+                    return historicalTtlSeconds;
+                }
+            } catch (DateTimeParseException ignored) {}
+            return intradayTtlSeconds;
+        }
+        return 0;
+    }
+
+    // 先確認回應可能放得進記憶體才 peekBody，避免為了多年份的 K 線先緩衝 maxEntryBytes 才發現太大
+    // 長度已知時直接比較；長度未知（例如 gzip 解壓後）只有盤中端點的小回應才試著讀
+    private boolean fitsInMemory(HttpUrl url, Response response) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return false;
+        }
+        long length = body.contentLength();
+        return length >= 0 ? length <= maxEntryBytes : url.encodedPath().contains("/intraday/");
+    }
+
+    // 快取的鍵包含 API Key（雜湊值），避免不同金鑰（例如已失效或別人的金鑰）共用結果
+    private static Request withKeyFragment(Request request) {
+        String apiKey = request.header("X-API-KEY");
+        if (apiKey == null) {
+            return request;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            HttpUrl url = request.url().newBuilder().fragment("k=" + HexFormat.of().formatHex(digest, 0, 8)).build();
+            return request.newBuilder().url(url).build();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
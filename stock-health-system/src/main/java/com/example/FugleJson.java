@@ -0,0 +1,151 @@
+package com.example;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fugle 歷史行情／技術指標回應的串流解析器
+// 回應格式都是 { ..., "data": [ {...}, {...} ] }：直接從 OkHttp 的 byte stream 逐個 token 讀進 record，
+// 不先把整個 body 轉成 String、也不建立 JsonNode 樹，多年份的資料只會在記憶體中保留最後的 record 清單
+final class FugleJson {
+    private FugleJson() {}
+
+    // 讀取 data 陣列中的一個物件（呼叫時 parser 停在 START_OBJECT，讀完時必須停在對應的 END_OBJECT）
+    interface RowReader<T> {
+        T read(JsonParser p) throws IOException;
+    }
+
+    // 同上，但不產生物件，直接把欄位寫進呼叫端的容器（例如 CandleSeries.Builder）
+    interface RowVisitor {
+        void visit(JsonParser p) throws IOException;
+    }
+
+    static <T> List<T> readData(JsonParser p, RowReader<T> reader) throws IOException {
+        List<T> rows = new ArrayList<>();
+        forEachRow(p, row -> rows.add(reader.read(row)));
+        return rows;
+    }
+
+    // 走訪最外層物件，只解析 data 陣列，其餘欄位（symbol、from、to...）直接略過
+    static void forEachRow(JsonParser p, RowVisitor visitor) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            if ("data".equals(field) && token == JsonToken.START_ARRAY) {
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    visitor.visit(p);
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    // 歷史 K 線（/historical/candles）：直接寫進 CandleSeries 的基本型別陣列，不建立 Candle 物件
+    static CandleSeries readCandles(JsonParser p) throws IOException {
+        CandleSeries.Builder series = CandleSeries.builder(256);
+        forEachRow(p, row -> {
+            LocalDate date = null;
+            double open = 0, high = 0, low = 0, close = 0, change = 0;
+            long volume = 0L;
+            while (row.nextToken() == JsonToken.FIELD_NAME) {
+                String field = row.currentName();
+                row.nextToken();
+                switch (field) {
+                    case "date" -> date = readDate(row);
+                    case "open" -> open = row.getValueAsDouble(); // 開盤價
+                    case "high" -> high = row.getValueAsDouble(); // 最高價
+                    case "low" -> low = row.getValueAsDouble(); // 最低價
+                    case "close" -> close = row.getValueAsDouble(); // 收盤價
+                    case "volume" -> volume = row.getValueAsLong(0L); // 成交量
+                    case "change" -> change = row.getValueAsDouble(); // 漲跌
+                    default -> row.skipChildren();
+                }
+            }
+            if (date != null) {
+                series.add((int) date.toEpochDay(), open, high, low, close, volume, change);
+            }
+        });
+        return series.build();
+    }
+
+    // RSI 指標（/technical/rsi）
+    static List<RSI> readRSI(JsonParser p) throws IOException {
+        return readData(p, row -> {
+            LocalDate date = null;
+            double rsi = 0;
+            while (row.nextToken() == JsonToken.FIELD_NAME) {
+                String field = row.currentName();
+                row.nextToken();
+                switch (field) {
+                    case "date" -> date = readDate(row);
+                    case "rsi" -> rsi = row.getValueAsDouble();
+                    default -> row.skipChildren();
+                }
+            }
+            return new RSI(date, rsi);
+        });
+    }
+
+    // MACD 指標（/technical/macd）
+    static List<MACD> readMACD(JsonParser p) throws IOException {
+        return readData(p, row -> {
+            LocalDate date = null;
+            double macdLine = 0, signalLine = 0;
+            while (row.nextToken() == JsonToken.FIELD_NAME) {
+                String field = row.currentName();
+                row.nextToken();
+                switch (field) {
+                    case "date" -> date = readDate(row);
+                    case "macdLine" -> macdLine = row.getValueAsDouble();
+                    case "signalLine" -> signalLine = row.getValueAsDouble();
+                    default -> row.skipChildren();
+                }
+            }
+            return new MACD(date, macdLine, signalLine);
+        });
+    }
+
+    // 日期固定為 yyyy-MM-dd：直接從 parser 的字元緩衝區讀數字，不另外建立 String；格式不符時退回 LocalDate.parse
+    // 不合法的日期（例如 2024-13-40）轉成 JsonParseException，和其他格式錯誤一樣走 IOException 的失敗路徑
+    private static LocalDate readDate(JsonParser p) throws IOException {
+        try {
+            char[] buf = p.getTextCharacters();
+            int off = p.getTextOffset();
+            int len = p.getTextLength();
+            if (len == 10 && buf[off + 4] == '-' && buf[off + 7] == '-') {
+                int year = digits(buf, off, 4);
+                int month = digits(buf, off + 5, 2);
+                int day = digits(buf, off + 8, 2);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    return LocalDate.of(year, month, day);
+                }
+            }
+            return LocalDate.parse(p.getText(), DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeException e) {
+            throw new JsonParseException(p, "日期格式錯誤：" + p.getText(), e);
+        }
+    }
+
+    private static int digits(char[] buf, int off, int len) {
+        int value = 0;
+        for (int i = off; i < off + len; i++) {
+            char c = buf[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
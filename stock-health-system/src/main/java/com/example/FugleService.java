@@ -1,16 +1,24 @@
 package com.example;
 
 // JSON 解析（Jackson）
+import com.fasterxml.jackson.core.JsonParser;  // Jackson 串流解析器：逐個 token 讀取 JSON，歷史 K 線與技術指標這類大量資料直接從 byte stream 解析（見 FugleJson），不必先把整份回應轉成 String 與 JsonNode 樹
 import com.fasterxml.jackson.databind.JsonNode;  // Jackson 資料綁定模組中的 JsonNode 類別：用於表示 JSON 資料的節點結構，允許以物件導向方式讀取、遍歷和操作 API 回應的 JSON 資料（例如，Fugle API 返回的 bids/asks 陣列）。這是 Jackson 庫的核心類別，用來處理非結構化 JSON 而不需預先定義 POJO（Plain Old Java Object），適合動態解析 API 回應
 import com.fasterxml.jackson.databind.ObjectMapper;  // Jackson 資料綁定模組中的 ObjectMapper 類別：Jackson 庫的核心工具，用於將 JSON 字串轉換為 Java 物件（如 JsonNode）或反之。這裡用來解析 Fugle API 的 HTTP 回應 body（body().string()），轉成可操作的 JSON 樹狀結構。若無此類別，我們需手動處理字串，易出錯。
 
 // 網路請求（OkHttp）
+import okhttp3.Cache;  // OkHttp 磁碟快取：這裡只用來讀取命中統計（快取本身由 FugleCache 建立）
+import okhttp3.Call;  // 一次 HTTP 請求的執行單位，可取消
+import okhttp3.Callback;  // enqueue 的非同步回呼
+import okhttp3.ConnectionPool;  // 連線池：保留閒置連線供後續請求重複使用
+import okhttp3.Dispatcher;  // 請求排程器：控制同時進行的請求數（總數、每個主機）
 import okhttp3.OkHttpClient;  // OkHttp 庫的核心客戶端類別：用於建立和管理 HTTP 連線。這裡用來發送 GET 請求到 Fugle API（如 fetchQuote 的 url），支援非同步、連線池和超時設定。OkHttp 是 Android/Java 的標準 HTTP 客戶端，高效且輕量。
 import okhttp3.Request;  // OkHttp 庫的 Request 類別：用於建構 HTTP 請求物件。這裡用來設定 URL、Header（如 X-API-KEY）和方法（GET），然後傳給 OkHttpClient 執行。支援 Builder 模式，易於自訂。
 import okhttp3.Response; // OkHttp 庫的 Response 類別：代表 HTTP 回應物件。這裡用來檢查狀態碼（isSuccessful()）、讀取 body（body().string()）和關閉資源（try-with-resources）。支援自動處理重試和錯誤。
+import okhttp3.Protocol;  // HTTP 協定版本（HTTP/2、HTTP/1.1）
 
 // 捕捉例外錯誤
 import java.io.IOException;  // Java I/O 套件的 IOException 類別：標準例外類別，用於處理 I/O 操作錯誤（如網路斷線、API 回應讀取失敗）。這裡在 try-catch 中捕捉，轉為 RuntimeException 讓上層 UI 處理。
+import java.io.InterruptedIOException;  // 等待回應時被中斷（例如使用者取消查詢）
 
 // 日期處理（java.time）
 import java.time.LocalDate;  // Java 時間 API (java.time) 中的 LocalDate 類別：不可變的日期類別（無時區），用於處理 fetchHistory 的日期範圍（如 from/to）。支援 minusDays() 等操作，取代舊的 Date/Calendar（易錯）。
@@ -18,7 +26,19 @@ import java.time.format.DateTimeFormatter;  // Java 時間 API 中的 DateTimeFo
 
 // 集合操作（java.util）
 import java.util.List; // Java 集合框架的 List 介面（抽象）：有序、可重複元素的集合介面。這裡用作泛型（如 List<BidAsk>），讓方法返回靈活的資料結構。ArrayList 實現它。
-import java.util.ArrayList;  // Java 集合框架中的 ArrayList 類別（具體）：動態陣列實現 List 介面，用於儲存可變大小的資料。這裡用來建構 bids/asks 的 List<BidAsk>，或 fetchHistory 的 candles 清單。
+import java.util.ArrayList;  // Java 集合框架中的 ArrayList 類別（具體）：動態陣列實現 List 介面，用於儲存可變大小的資料。這裡用來建構 bids/asks 的 List<BidAsk>。
+import java.util.Map;  // 進行中請求的對照表（鍵 → 共用的 CompletableFuture）
+
+// 並行（java.util.concurrent）
+import java.util.concurrent.CompletableFuture;  // 等待 Dispatcher 非同步執行的請求結果，也用來讓相同的請求共用結果
+import java.util.concurrent.CompletionException;  // 共用結果失敗時包在外層的例外
+import java.util.concurrent.ConcurrentHashMap;  // 進行中請求的對照表
+import java.util.concurrent.ExecutionException;  // 請求失敗時包在外層的例外，取出原本的 IOException
+import java.util.concurrent.ExecutorService;  // 專用的 I/O 執行緒（虛擬執行緒），不佔用 ForkJoin 共用池
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;  // close() 之後送出的請求
+import java.util.concurrent.TimeUnit;  // 逾時、連線存活時間的單位
+import java.util.function.Supplier;  // 實際送出請求的動作（交給 singleFlight 決定是否執行）
 
 // RSI 記錄類別（簡潔記錄 date 和 rsi）
 record RSI(LocalDate date, double rsi) {}
@@ -27,20 +47,270 @@ record RSI(LocalDate date, double rsi) {}
 record MACD(LocalDate date, double macdLine, double signalLine) {}
 
 public class FugleService {
-    private final OkHttpClient client = new OkHttpClient();
+    private final OkHttpClient client;
+    private final OkHttpClient streamClient; // 即時串流（WebSocket）用：共用連線池與 Dispatcher，另外定時送 ping 偵測斷線
+    private final String streamUrl;
+    private final String baseUrl; // REST 端點的根網址（回放測試時改指向 ReplayServer）
+    private final FugleCache cache; // API 回應快取（記憶體 + 磁碟），也負責離線模式
+    private final RateLimiter limiter; // 用戶端速率限制（令牌桶）與 429/5xx 重試
     private final ObjectMapper mapper = new ObjectMapper();
     private final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+    private final CandleStore store = new CandleStore(CandleStore.defaultDirectory()); // 本機日 K 快取
+    private final Map<String, Flight<?>> inFlight = new ConcurrentHashMap<>(); // 進行中的請求（single-flight），鍵為 端點|股票|區間|金鑰
+    // 非同步 API 的執行緒：每個請求一個虛擬執行緒，等待網路時不佔用平台執行緒，也不會卡住 CompletableFuture 預設的 ForkJoin 共用池
+    // 實際同時連網的數量仍由 Dispatcher 與 RateLimiter 控制
+    private final ExecutorService ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fugle-io-", 0).factory());
+
+    public FugleService() {
+        this(AppSettings.load());
+    }
+
+    public FugleService(AppSettings settings) {
+        this.cache = new FugleCache(settings);
+        this.limiter = new RateLimiter(settings);
+
+        // Dispatcher：同時進行的請求上限；每個主機的上限對齊 Fugle 方案的配額（超過的請求在 Dispatcher 佇列中排隊，不會一次湧向伺服器）
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.getInt("fugle.http.max-requests", 64));
+        dispatcher.setMaxRequestsPerHost(settings.getInt("fugle.http.max-requests-per-host", 8));
+
+        // 連線池：保留的閒置連線數與存活時間（批次掃描時重複使用連線，省去 TLS 交握）
+        ConnectionPool pool = new ConnectionPool(
+                settings.getInt("fugle.http.pool.max-idle", 8),
+                settings.getLong("fugle.http.pool.keep-alive-seconds", 300),
+                TimeUnit.SECONDS);
+
+        // HTTP/2：伺服器支援時（ALPN 協商）多個請求共用同一條連線；關閉時只用 HTTP/1.1
+        List<Protocol> protocols = settings.getBoolean("fugle.http.http2", true)
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(pool)
+                .protocols(protocols)
+                // 逾時設定：連線、讀取都要快速失敗，callTimeout 則限制整個請求（含排隊等待配額與重試）的總時間
+                .connectTimeout(settings.getLong("fugle.http.connect-timeout-ms", 5000), TimeUnit.MILLISECONDS)
+                .readTimeout(settings.getLong("fugle.http.read-timeout-ms", 10000), TimeUnit.MILLISECONDS)
+                .writeTimeout(settings.getLong("fugle.http.write-timeout-ms", 10000), TimeUnit.MILLISECONDS)
+                .callTimeout(settings.getLong("fugle.http.call-timeout-ms", 60000), TimeUnit.MILLISECONDS)
+                .cache(cache.disk())
+                .addInterceptor(cache.memoryInterceptor())  // 先查記憶體快取，命中時不消耗配額
+                .addInterceptor(limiter)  // 429/5xx 重試
+                .addNetworkInterceptor(limiter.tokenInterceptor())  // 令牌桶：磁碟快取沒命中、真的要連網時才取令牌
+                .addNetworkInterceptor(cache.ttlInterceptor());
+
+        // 錄製模式（設定 capture.dir）：把收到的回應存檔，之後可交給 ReplayServer 回放
+        HttpRecorder recorder = HttpRecorder.fromSettings(settings);
+        if (recorder != null) {
+            builder.addInterceptor(recorder.interceptor());
+        }
+        this.client = builder.build();
+        this.baseUrl = settings.get("fugle.base-url", "https://api.fugle.tw/marketdata/v1.0/stock");
+
+        this.streamUrl = settings.get("fugle.stream.url", "wss://api.fugle.tw/marketdata/v1.0/stock/streaming");
+        this.streamClient = client.newBuilder()
+                .pingInterval(settings.getLong("fugle.stream.ping-seconds", 30), TimeUnit.SECONDS)
+                .build();
+    }
+
+    // 開啟單一股票的即時報價串流（trades + books），以 initial（REST 查到的報價）為起點逐筆更新
+    // 回傳的 QuoteStream 用完要 close()；離線模式下無法使用（WebSocket 沒有快取可回放）
+    public QuoteStream openQuoteStream(String symbol, String apiKey, Quote initial, QuoteStream.Listener listener) {
+        QuoteStream stream = new QuoteStream(mapper, symbol, apiKey, initial, listener);
+        stream.connect(streamClient, streamUrl);
+        return stream;
+    }
+
+    // HTTP 用戶端的即時狀態（連線池、Dispatcher 佇列、磁碟快取命中數）與速率限制統計（累計：等待配額、被 429 限流、重試次數）
+    public record ClientStats(int connections, int idleConnections, int runningCalls, int queuedCalls,
+                              int cacheRequests, int cacheHits, int networkRequests,
+                              long rateQueued, long rateThrottled, long rateRetried) {}
+
+    public ClientStats clientStats() {
+        ConnectionPool pool = client.connectionPool();
+        Dispatcher dispatcher = client.dispatcher();
+        Cache disk = client.cache();
+        return new ClientStats(
+                pool.connectionCount(),
+                pool.idleConnectionCount(),
+                dispatcher.runningCallsCount(),
+                dispatcher.queuedCallsCount(),
+                disk != null ? disk.requestCount() : 0,
+                disk != null ? disk.hitCount() : 0,
+                disk != null ? disk.networkCount() : 0,
+                limiter.queuedCount(),
+                limiter.throttledCount(),
+                limiter.retriedCount());
+    }
+
+    // 結束程式時呼叫：停止接受新請求、取消進行中的請求並釋放連線
+    public void close() {
+        ioExecutor.shutdownNow();
+        client.dispatcher().cancelAll();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    // 離線模式：不連網，只回放先前快取的回應（測試、展示用）
+    public boolean isOffline() {
+        return cache.isOffline();
+    }
+
+    public void setOffline(boolean offline) {
+        cache.setOffline(offline);
+    }
+
+    // 所有 Fugle REST 請求的共用出口：帶上 API Key 後送出，依序經過記憶體快取、磁碟快取，最後才是網路
+    // 以 enqueue 交給 Dispatcher 執行再等待結果（同步的 execute() 不受 Dispatcher 的並行上限管制）
+    private Response execute(String url, String apiKey) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("X-API-KEY", apiKey)
+                .build();
+
+        Call call = client.newCall(request);
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call c, Response response) {
+                if (!result.complete(response)) {
+                    response.close();  // 呼叫端已放棄等待
+                }
+            }
+
+            @Override
+            public void onFailure(Call c, IOException e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            call.cancel();
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("請求已取消");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    // 合併同時發生的相同請求（single-flight）：第一個呼叫端在 I/O 執行緒上實際送出請求，其餘呼叫端拿到同一個 CompletableFuture
+    // 只合併「在途中」的請求，完成後立刻移除，之後的查詢仍會重新取得（重複查詢的加速交給 FugleCache）
+    // 結果會同時交給多個呼叫端，所以回傳的物件都必須是不可修改的（record、List.copyOf、CandleSeries）
+    // 每個呼叫端拿到的是 copy()：某個畫面取消自己的查詢，不會連帶取消其他正在等待同一份結果的呼叫端
+    // 所有呼叫端都取消時才中止請求：中斷 I/O 執行緒，execute() 隨即 Call.cancel()，不再佔用連線與配額
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> singleFlight(String key, Supplier<T> loader) {
+        Flight<T> created = new Flight<>();
+        Flight<T> flight = (Flight<T>) inFlight.compute(key, (k, existing) ->
+                existing != null && existing.subscribe() ? existing : created.subscribeFirst());
+
+        CompletableFuture<T> copy = flight.result.copy();
+        copy.whenComplete((value, ex) -> {
+            // 對照表的操作放在 Flight 的鎖之外（compute 是先鎖對照表再鎖 Flight，反過來會死結）
+            if (copy.isCancelled() && flight.unsubscribe()) {
+                inFlight.remove(key, flight);
+                flight.result.cancel(false);
+            }
+        });
+        if (flight != created) {
+            return copy;
+        }
+
+        try {
+            ioExecutor.execute(() -> {
+                if (!flight.start()) {
+                    return;  // 送出前所有呼叫端就已取消
+                }
+                try {
+                    flight.result.complete(loader.get());
+                } catch (Throwable e) {
+                    flight.result.completeExceptionally(e);
+                } finally {
+                    flight.finish();
+                    inFlight.remove(key, flight);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已呼叫 close()
+            inFlight.remove(key, flight);
+            flight.result.completeExceptionally(e);
+        }
+        return copy;
+    }
+
+    // 一個在途中的請求：共用的結果、目前等待中的呼叫端數，以及執行它的 I/O 執行緒（以 this 同步）
+    private static final class Flight<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private int subscribers;
+        private boolean abandoned;  // 所有呼叫端都已取消，新的呼叫端不能再加入
+        private Thread worker;
+
+        synchronized Flight<T> subscribeFirst() {
+            subscribers++;
+            return this;
+        }
+
+        synchronized boolean subscribe() {
+            if (abandoned || result.isDone()) {  // 已完成、只是還沒從對照表移除的不再共用
+                return false;
+            }
+            subscribers++;
+            return true;
+        }
+
+        // 最後一個呼叫端取消時回傳 true，並中斷執行中的請求
+        synchronized boolean unsubscribe() {
+            if (--subscribers > 0 || result.isDone()) {
+                return false;
+            }
+            abandoned = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+            return true;
+        }
+
+        synchronized boolean start() {
+            if (abandoned) {
+                return false;
+            }
+            worker = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void finish() {
+            worker = null;
+        }
+    }
+
+    // 同步版本：等待非同步結果，並還原成原本的例外（fetchQuote 失敗時為 RuntimeException）
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    // 非同步查詢即時報價；失敗時 future 以 RuntimeException（cause 為實際的 IOException）結束
+    public CompletableFuture<Quote> fetchQuoteAsync(String symbol, String apiKey) {
+        return singleFlight("quote|" + symbol + "|" + apiKey, () -> loadQuote(symbol, apiKey));
+    }
 
     public Quote fetchQuote(String symbol, String apiKey) {
+        return await(fetchQuoteAsync(symbol, apiKey));
+    }
+
+    private Quote loadQuote(String symbol, String apiKey) {
         try {
-            String url = "https://api.fugle.tw/marketdata/v1.0/stock/intraday/quote/" + symbol;
-            Request request = new Request.Builder()
-                    .url(url)
-                    .header("X-API-KEY", apiKey)
-                    .build();
+            String url = baseUrl + "/intraday/quote/" + symbol;
 
             // try-with-resources（Java 7+語法，自動關閉Response資源），所以無需再catch
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = execute(url, apiKey)) {
                 if (response.isSuccessful()) {
                     JsonNode root = mapper.readTree(response.body().string());
                     JsonNode data = root;  // 文件平坦結構
@@ -71,9 +341,15 @@ public class FugleService {
                         data.path("total").path("tradeVolume").asLong(0L), // 總量
                         data.path("change").asDouble(), // 漲跌
                         data.path("changePercent").asDouble(), // 幅度
-                        bids, // 委買價
-                        asks  // 委賣價
+                        List.copyOf(bids), // 委買價（不可修改：同一份結果可能同時交給多個呼叫端）
+                        List.copyOf(asks)  // 委賣價
                     );
+                } else if (response.code() == 504 && cache.isOffline()) {
+                    // 離線模式下沒有這檔股票的快取（OkHttp FORCE_CACHE 找不到快取時回應 504）
+                    throw new IOException("離線模式：沒有快取資料");
+                } else if (response.code() == 429) {
+                    // 429 Too Many Requests：已依 Retry-After／退避重試仍被限流
+                    throw new IOException("請求過於頻繁，請稍後再試（429）");
                 } else if (response.code() == 401 || response.code() == 403 || response.code() == 404) {
                     // 401 Unauthorized：需要用戶端進行身分驗證。
                     // 403 Forbidden：伺服器理解請求，但拒絕存取。
@@ -91,73 +367,90 @@ public class FugleService {
         }
     }
 
-    public List<Candle> fetchHistory(String symbol, int days, String apiKey) {
+    // RSI、MACD 等畫面會同時查同一段歷史 K 線（含暖機天數），在途中的相同請求只送一次
+    public CompletableFuture<CandleSeries> fetchHistoryAsync(String symbol, int days, String apiKey) {
+        return singleFlight("history|" + symbol + "|" + days + "|" + apiKey, () -> loadHistory(symbol, days, apiKey));
+    }
+
+    public CandleSeries fetchHistory(String symbol, int days, String apiKey) {
+        return await(fetchHistoryAsync(symbol, days, apiKey));
+    }
+
+    private CandleSeries loadHistory(String symbol, int days, String apiKey) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(days);
+        LocalDate closedTo = today.minusDays(1); // 今天的 K 棒可能還在盤中，只有昨天（含）以前的才算收盤定案
+
+        // 先查本機快取：已收盤的日 K 不會再變動，只向 Fugle 補抓快取之後缺少的尾段日期
+        CandleStore.Segment cached = store.load(symbol);
+        if (cached == null || from.isBefore(cached.coveredFrom())) {
+            // 沒有快取，或要求的起日比快取更早：整段下載後重寫快取
+            CandleSeries candles = requestCandles(symbol, from, today, apiKey);
+            if (candles == null) {
+                return CandleSeries.empty();  // API 失效時返回空序列，讓 UI 顯示錯誤提示
+            }
+            store.replace(symbol, from, closedTo, candles.before(today)); // 只保留收盤定案的 K 棒（今天以前）寫進快取
+            return candles;
+        }
+
+        CandleSeries candles = cached.candles().since(from);
+
+        LocalDate tailFrom = cached.coveredTo().plusDays(1);
+        if (!tailFrom.isAfter(today)) {
+            CandleSeries tail = requestCandles(symbol, tailFrom, today, apiKey);
+            if (tail == null) {
+                return CandleSeries.empty();  // API 失效時返回空序列，讓 UI 顯示錯誤提示
+            }
+            store.append(symbol, closedTo, tail.before(today));
+            candles = candles.concat(tail);
+        }
+        return candles;
+    }
+
+    // 向 Fugle 下載指定日期區間的日 K，失敗時回傳 null（與「區間內沒有交易日」的空序列區分）
+    private CandleSeries requestCandles(String symbol, LocalDate from, LocalDate to, String apiKey) {
         try {
-            LocalDate to = LocalDate.now();
-            LocalDate from = to.minusDays(days);
             String params = String.format("?from=%s&to=%s&timeframe=D&fields=open,high,low,close,volume,change&sort=asc",
                     from.format(formatter), to.format(formatter));
-            String url = "https://api.fugle.tw/marketdata/v1.0/stock/historical/candles/" + symbol + params;
-
-            Request request = new Request.Builder()
-                    .url(url)
-                    .header("X-API-KEY", apiKey)
-                    .build();
+            String url = baseUrl + "/historical/candles/" + symbol + params;
 
             // try-with-resources（Java 7+語法，自動關閉Response資源），所以無需再catch
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = execute(url, apiKey)) {
                 if (response.isSuccessful()) {
-                    JsonNode root = mapper.readTree(response.body().string());
-                    JsonNode dataArray = root.path("data");
-                    List<Candle> candles = new ArrayList<>();
-                    for (JsonNode node : dataArray) {
-                        candles.add(new Candle(
-                                LocalDate.parse(node.path("date").asText(), formatter),
-                                node.path("open").asDouble(), // 開盤價
-                                node.path("high").asDouble(), // 最高價
-                                node.path("low").asDouble(), // 最低價
-                                node.path("close").asDouble(), // 收盤價
-                                node.path("volume").asLong(0L), // 成交量
-                                node.path("change").asDouble()  // 漲跌
-                        ));
+                    // 直接從 byte stream 串流解析，不先轉成 String / JsonNode 樹
+                    try (JsonParser parser = mapper.getFactory().createParser(response.body().byteStream())) {
+                        return FugleJson.readCandles(parser);
                     }
-                    return candles;
-                } else if (response.code() == 401 || response.code() == 404) {
-                    return List.of();  // API 失效時返回空 list，讓 UI 顯示錯誤提示
                 }
             }
         } catch (IOException e) {
-            return List.of();  // API 失效時返回空 list，讓 UI 顯示錯誤提示
+            return null;
         }
-        return List.of();
+        return null;
     }
 
     // 取得 RSI 指標
+    public CompletableFuture<List<RSI>> fetchRSIAsync(String symbol, int days, String apiKey) {
+        return singleFlight("rsi|" + symbol + "|" + days + "|" + apiKey, () -> loadRSI(symbol, days, apiKey));
+    }
+
     public List<RSI> fetchRSI(String symbol, int days, String apiKey) {
+        return await(fetchRSIAsync(symbol, days, apiKey));
+    }
+
+    private List<RSI> loadRSI(String symbol, int days, String apiKey) {
         try {
             LocalDate to = LocalDate.now();
             LocalDate from = to.minusDays(days);
             String params = String.format("?from=%s&to=%s&timeframe=D&period=6", from.format(formatter), to.format(formatter));
-            String url = "https://api.fugle.tw/marketdata/v1.0/stock/technical/rsi/" + symbol + params;
-
-            Request request = new Request.Builder()
-                    .url(url)
-                    .header("X-API-KEY", apiKey)
-                    .build();
+            String url = baseUrl + "/technical/rsi/" + symbol + params;
 
             // try-with-resources（Java 7+語法，自動關閉Response資源），所以無需再catch
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = execute(url, apiKey)) {
                 if (response.isSuccessful()) {
-                    JsonNode root = mapper.readTree(response.body().string());
-                    JsonNode dataArray = root.path("data");
-                    List<RSI> rsiList = new ArrayList<>();
-                    for (JsonNode node : dataArray) {
-                        rsiList.add(new RSI(
-                                LocalDate.parse(node.path("date").asText(), formatter),
-                                node.path("rsi").asDouble()
-                        ));
+                    try (JsonParser parser = mapper.getFactory().createParser(response.body().byteStream())) {
+                        return List.copyOf(FugleJson.readRSI(parser));
                     }
-                    return rsiList;
                 } else if (response.code() == 401 || response.code() == 404) {
                     return List.of();  // API 失效時返回空 list，讓 UI 顯示錯誤提示
                 }
@@ -169,30 +462,26 @@ public class FugleService {
     }
 
     // 取得 MACD 指標
+    public CompletableFuture<List<MACD>> fetchMACDAsync(String symbol, int days, String apiKey) {
+        return singleFlight("macd|" + symbol + "|" + days + "|" + apiKey, () -> loadMACD(symbol, days, apiKey));
+    }
+
     public List<MACD> fetchMACD(String symbol, int days, String apiKey) {
+        return await(fetchMACDAsync(symbol, days, apiKey));
+    }
+
+    private List<MACD> loadMACD(String symbol, int days, String apiKey) {
         try {
             LocalDate to = LocalDate.now();
             LocalDate from = to.minusDays(days);
             String params = String.format("?from=%s&to=%s&timeframe=D&fast=12&slow=26&signal=9", from.format(formatter), to.format(formatter));
-            String url = "https://api.fugle.tw/marketdata/v1.0/stock/technical/macd/" + symbol + params;
+            String url = baseUrl + "/technical/macd/" + symbol + params;
 
-            Request request = new Request.Builder()
-                    .url(url)
-                    .header("X-API-KEY", apiKey)
-                    .build();
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = execute(url, apiKey)) {
                 if (response.isSuccessful()) {
-                    JsonNode root = mapper.readTree(response.body().string());
-                    JsonNode dataArray = root.path("data");
-                    List<MACD> macdList = new ArrayList<>();
-                    for (JsonNode node : dataArray) {
-                        macdList.add(new MACD(
-                                LocalDate.parse(node.path("date").asText(), formatter),
-                                node.path("macdLine").asDouble(),
-                                node.path("signalLine").asDouble()
-                        ));
+                    try (JsonParser parser = mapper.getFactory().createParser(response.body().byteStream())) {
+                        return List.copyOf(FugleJson.readMACD(parser));
                     }
-                    return macdList;
                 } else if (response.code() == 401 || response.code() == 404) {
                     return List.of();  // API 失效時返回空 list，讓 UI 顯示錯誤提示
                 }
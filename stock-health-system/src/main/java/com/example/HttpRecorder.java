@@ -0,0 +1,147 @@
+package com.example;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+// HTTP 錄製：把 FugleService 與外資空口數爬蟲收到的回應存成檔案，之後交給 ReplayServer 回放
+// 設定 capture.dir 即開啟（留空則不錄製）；每個「方法 + 路徑 + 查詢字串」一個檔案，同一個請求再錄一次會覆蓋舊檔
+// 檔名與內容都不含主機名稱與 X-API-KEY，回放時只要把 base URL 換成 ReplayServer 即可對上
+// 檔案格式（UTF-8 文字檔頭 + 原始 body）：
+//   第 1 行：方法 空白 路徑?查詢字串
+//   第 2 行：狀態碼
+//   第 3 行：Content-Type（沒有時為空行）
+//   空行，之後到檔尾都是 body
+final class HttpRecorder {
+    static final String SUFFIX = ".http";
+
+    // 一筆錄下的交換（target 為 路徑?查詢字串）
+    record Exchange(String method, String target, int status, String contentType, byte[] body) {}
+
+    private final Path dir;
+
+    HttpRecorder(Path dir) {
+        this.dir = dir;
+    }
+
+    // 沒有設定 capture.dir 時回傳 null（不錄製）
+    static HttpRecorder fromSettings(AppSettings settings) {
+        Path dir = settings.getPath("capture.dir", null);
+        return dir != null ? new HttpRecorder(dir) : null;
+    }
+
+    // 應用層攔截器（放在快取與速率限制之後）：body 已解壓縮，讀進記憶體存檔後再包回新的 ResponseBody 交給呼叫端
+    Interceptor interceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            ResponseBody body = response.body();
+            if (body == null) {
+                return response;
+            }
+            MediaType contentType = body.contentType();
+            byte[] bytes = body.bytes();
+            save(new Exchange(request.method(), target(request.url().encodedPath(), request.url().encodedQuery()),
+                    response.code(), contentType != null ? contentType.toString() : "", bytes));
+            return response.newBuilder().body(ResponseBody.create(bytes, contentType)).build();
+        };
+    }
+
+    static String target(String path, String query) {
+        return query == null || query.isEmpty() ? path : path + "?" + query;
+    }
+
+    // 寫入失敗只印出警告，不影響正常查詢
+    void save(Exchange exchange) {
+        try {
+            Files.createDirectories(dir);
+            Path file = dir.resolve(fileName(exchange.method(), exchange.target()));
+            Path tmp = Files.createTempFile(dir, "capture", ".tmp");
+            String head = exchange.method() + " " + exchange.target() + "\n"
+                    + exchange.status() + "\n"
+                    + exchange.contentType() + "\n\n";
+            ByteArrayOutputStream out = new ByteArrayOutputStream(head.length() + exchange.body().length);
+            out.writeBytes(head.getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(exchange.body());
+            Files.write(tmp, out.toByteArray());
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("無法寫入錄製檔: " + e.getMessage());
+        }
+    }
+
+    // 讀取資料夾內所有錄製檔（依修改時間遞增，同一路徑有多筆時後面的較新）；格式不符的檔案略過
+    static List<Exchange> loadAll(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort((a, b) -> {
+            try {
+                return Files.getLastModifiedTime(a).compareTo(Files.getLastModifiedTime(b));
+            } catch (IOException e) {
+                return 0;
+            }
+        });
+
+        List<Exchange> exchanges = new ArrayList<>(files.size());
+        for (Path file : files) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                String request = readLine(in);
+                String status = readLine(in);
+                String contentType = readLine(in);
+                String blank = readLine(in);
+                int space = request != null ? request.indexOf(' ') : -1;
+                if (space < 0 || status == null || contentType == null || !"".equals(blank)) {
+                    continue;
+                }
+                exchanges.add(new Exchange(request.substring(0, space), request.substring(space + 1),
+                        Integer.parseInt(status), contentType, in.readAllBytes()));
+            } catch (NumberFormatException e) {
+                System.err.println("略過格式錯誤的錄製檔: " + file);
+            }
+        }
+        return exchanges;
+    }
+
+    // 讀到 \n 為止（檔頭是 ASCII／UTF-8 文字，body 是原始位元組，不能用 Reader 以免多讀）
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return b == -1 && line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String fileName(String method, String target) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest((method + " " + target).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.example;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// SMA 記錄類別（簡潔記錄 date 和 sma）
+record SMA(LocalDate date, double sma) {}
+
+// KDJ 記錄類別（簡潔記錄 date、k、d 和 j）
+record KDJ(LocalDate date, double k, double d, double j) {}
+
+// 布林通道記錄類別（簡潔記錄 date、upper、middle 和 lower）
+record BollingerBand(LocalDate date, double upper, double middle, double lower) {}
+
+// 本機技術指標引擎：每檔股票保留各指標的滾動狀態，每餵入一根新的 K 棒只做 O(1) 的更新，
+// 不必每次點擊都呼叫 /technical/rsi、/technical/macd 等 API，也不必每次從頭重算整段歷史
+// 參數與 Fugle 技術指標 API 的預設值一致（見 stock_api/fugle_technical_api.txt）
+public class IndicatorEngine {
+    public static final int RSI_PERIOD = 6;
+    public static final int MACD_FAST = 12;
+    public static final int MACD_SLOW = 26;
+    public static final int MACD_SIGNAL = 9;
+    public static final int SMA_PERIOD = 5;
+    public static final int KDJ_R_PERIOD = 9;
+    public static final int KDJ_K_PERIOD = 3;
+    public static final int KDJ_D_PERIOD = 3;
+    public static final int BB_PERIOD = 20;
+    public static final double BB_WIDTH = 2.0;
+
+    // EMA 以第一根收盤價起算，需要足夠的前置資料才會收斂；查詢時多抓這麼多天（日曆日，約 120 個交易日）當暖機
+    public static final int WARMUP_DAYS = 180;
+
+    private final Map<String, SymbolState> states = new ConcurrentHashMap<>();
+
+    // 餵入歷史 K 線（依日期遞增）：只處理比目前狀態更新的 K 棒；若資料起點比狀態更早，代表歷史區間變長，整個重建
+    // 今天的 K 棒可能還在盤中，只有收盤定案的（今天以前）才進入狀態；盤中的今天由 preview* 預估，每次查詢都重算
+    public void feed(String symbol, CandleSeries candles) {
+        candles = candles.before(LocalDate.now());
+        if (candles.isEmpty()) {
+            return;
+        }
+        SymbolState state = states.computeIfAbsent(symbol, s -> new SymbolState());
+        synchronized (state) {
+            if (state.firstDate == null || candles.firstDate().isBefore(state.firstDate)) {
+                state.reset();
+            }
+            // 已處理過的部分直接用二分搜尋跳過，只走訪新的 K 棒
+            CandleSeries newer = state.lastDate == null ? candles : candles.after(state.lastDate);
+            for (int i = 0; i < newer.size(); i++) {
+                state.update(newer.date(i), newer.high(i), newer.low(i), newer.close(i));
+            }
+        }
+    }
+
+    public List<RSI> rsi(String symbol, LocalDate from) {
+        return view(symbol, s -> s.rsi, RSI::date, from);
+    }
+
+    public List<MACD> macd(String symbol, LocalDate from) {
+        return view(symbol, s -> s.macd, MACD::date, from);
+    }
+
+    public List<SMA> sma(String symbol, LocalDate from) {
+        return view(symbol, s -> s.sma, SMA::date, from);
+    }
+
+    public List<KDJ> kdj(String symbol, LocalDate from) {
+        return view(symbol, s -> s.kdj, KDJ::date, from);
+    }
+
+    public List<BollingerBand> bollinger(String symbol, LocalDate from) {
+        return view(symbol, s -> s.bollinger, BollingerBand::date, from);
+    }
+
+    // 盤中預估：假設下一根 K 棒為 candle 時的 RSI，不改變狀態（收盤後的正式 K 棒仍由 feed 餵入）
+    public RSI previewRSI(String symbol, Candle candle) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.rsiCalc.peek(candle.date(), candle.close());
+        }
+    }
+
+    // 盤中預估：假設下一根 K 棒為 candle 時的 MACD，不改變狀態
+    public MACD previewMACD(String symbol, Candle candle) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.macdCalc.peek(candle.date(), candle.close());
+        }
+    }
+
+    // 取出某日（含）之後的結果；輸出依日期遞增，用二分搜尋找起點
+    private <T> List<T> view(String symbol, Function<SymbolState, List<T>> series, Function<T, LocalDate> dateOf, LocalDate from) {
+        SymbolState state = states.get(symbol);
+        if (state == null) {
+            return new ArrayList<>();
+        }
+        synchronized (state) {
+            List<T> list = series.apply(state);
+            int lo = 0;
+            int hi = list.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (dateOf.apply(list.get(mid)).isBefore(from)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return new ArrayList<>(list.subList(lo, list.size()));
+        }
+    }
+
+    // 單一股票的指標狀態與已算出的結果
+    private static class SymbolState {
+        LocalDate firstDate;
+        LocalDate lastDate;
+        RsiCalc rsiCalc;
+        MacdCalc macdCalc;
+        SmaCalc smaCalc;
+        KdjCalc kdjCalc;
+        BollingerCalc bollingerCalc;
+        final List<RSI> rsi = new ArrayList<>();
+        final List<MACD> macd = new ArrayList<>();
+        final List<SMA> sma = new ArrayList<>();
+        final List<KDJ> kdj = new ArrayList<>();
+        final List<BollingerBand> bollinger = new ArrayList<>();
+
+        SymbolState() {
+            reset();
+        }
+
+        void reset() {
+            firstDate = null;
+            lastDate = null;
+            rsiCalc = new RsiCalc(RSI_PERIOD);
+            macdCalc = new MacdCalc(MACD_FAST, MACD_SLOW, MACD_SIGNAL);
+            smaCalc = new SmaCalc(SMA_PERIOD);
+            kdjCalc = new KdjCalc(KDJ_R_PERIOD, KDJ_K_PERIOD, KDJ_D_PERIOD);
+            bollingerCalc = new BollingerCalc(BB_PERIOD, BB_WIDTH);
+            rsi.clear();
+            macd.clear();
+            sma.clear();
+            kdj.clear();
+            bollinger.clear();
+        }
+
+        void update(LocalDate date, double high, double low, double close) {
+            if (firstDate == null) {
+                firstDate = date;
+            }
+            lastDate = date;
+            addIfPresent(rsi, rsiCalc.update(date, close));
+            addIfPresent(macd, macdCalc.update(date, close));
+            addIfPresent(sma, smaCalc.update(date, close));
+            addIfPresent(kdj, kdjCalc.update(date, high, low, close));
+            addIfPresent(bollinger, bollingerCalc.update(date, close));
+        }
+
+        private static <T> void addIfPresent(List<T> list, T value) {
+            if (value != null) {
+                list.add(value);
+            }
+        }
+    }
+
+    // 標準 Wilder RSI：前 period 天取簡單平均，之後用 Wilder 平滑公式
+    private static class RsiCalc {
+        private final int period;
+        private int changes; // 已累計的漲跌筆數
+        private double prevClose = Double.NaN;
+        private double avgGain;
+        private double avgLoss;
+
+        RsiCalc(int period) {
+            this.period = period;
+        }
+
+        RSI update(LocalDate date, double close) {
+            RSI result = compute(date, close, true);
+            prevClose = close;
+            return result;
+        }
+
+        RSI peek(LocalDate date, double close) {
+            return compute(date, close, false);
+        }
+
+        private RSI compute(LocalDate date, double close, boolean commit) {
+            if (Double.isNaN(prevClose)) {
+                return null;
+            }
+            double change = close - prevClose;
+            double gain = change > 0 ? change : 0.0;
+            double loss = change < 0 ? -change : 0.0;
+
+            double g;
+            double l;
+            if (changes < period) {
+                // 暖機期：累計前 period 天的漲跌，滿 period 筆時取平均
+                g = avgGain + gain;
+                l = avgLoss + loss;
+                if (changes + 1 == period) {
+                    g /= period;
+                    l /= period;
+                }
+            } else {
+                g = (avgGain * (period - 1) + gain) / period;
+                l = (avgLoss * (period - 1) + loss) / period;
+            }
+
+            int n = changes + 1;
+            if (commit) {
+                avgGain = g;
+                avgLoss = l;
+                changes = n;
+            }
+            if (n < period) {
+                return null;
+            }
+            double rsi = l == 0 ? 100 : 100.0 - (100.0 / (1.0 + g / l));
+            return new RSI(date, rsi);
+        }
+    }
+
+    // 標準 MACD：EMA 以第一根收盤價起算，第 slow 根起輸出 DIF，第一筆 DEA（信號線）= DIF
+    private static class MacdCalc {
+        private final int slow;
+        private final double multiplierFast;
+        private final double multiplierSlow;
+        private final double multiplierSignal;
+        private int count;
+        private double emaFast;
+        private double emaSlow;
+        private double dea = Double.NaN;
+
+        MacdCalc(int fast, int slow, int signal) {
+            this.slow = slow;
+            this.multiplierFast = 2.0 / (fast + 1);
+            this.multiplierSlow = 2.0 / (slow + 1);
+            this.multiplierSignal = 2.0 / (signal + 1);
+        }
+
+        MACD update(LocalDate date, double close) {
+            if (count == 0) {
+                emaFast = close;
+                emaSlow = close;
+            } else {
+                emaFast = (close - emaFast) * multiplierFast + emaFast;
+                emaSlow = (close - emaSlow) * multiplierSlow + emaSlow;
+            }
+            count++;
+            if (count < slow) {
+                return null;
+            }
+            double dif = emaFast - emaSlow;
+            dea = Double.isNaN(dea) ? dif : (dif - dea) * multiplierSignal + dea;
+            return new MACD(date, dif, dea);
+        }
+
+        MACD peek(LocalDate date, double close) {
+            if (count == 0 || count + 1 < slow) {
+                return null;
+            }
+            double fast = (close - emaFast) * multiplierFast + emaFast;
+            double slowEma = (close - emaSlow) * multiplierSlow + emaSlow;
+            double dif = fast - slowEma;
+            double signal = Double.isNaN(dea) ? dif : (dif - dea) * multiplierSignal + dea;
+            return new MACD(date, dif, signal);
+        }
+    }
+
+    // 簡單移動平均：環狀緩衝區保留最近 period 筆收盤價，滑動時加新減舊
+    private static class SmaCalc {
+        private final double[] window;
+        private int count;
+        private double sum;
+
+        SmaCalc(int period) {
+            this.window = new double[period];
+        }
+
+        SMA update(LocalDate date, double close) {
+            int slot = count % window.length;
+            if (count >= window.length) {
+                sum -= window[slot];
+            }
+            window[slot] = close;
+            sum += close;
+            count++;
+            return count >= window.length ? new SMA(date, sum / window.length) : null;
+        }
+    }
+
+    // 布林通道：滑動維護收盤價的和與平方和，中軌為 SMA，上下軌為中軌 ± width 倍標準差
+    private static class BollingerCalc {
+        private final double[] window;
+        private final double width;
+        private int count;
+        private double sum;
+        private double sumSq;
+
+        BollingerCalc(int period, double width) {
+            this.window = new double[period];
+            this.width = width;
+        }
+
+        BollingerBand update(LocalDate date, double close) {
+            int slot = count % window.length;
+            if (count >= window.length) {
+                sum -= window[slot];
+                sumSq -= window[slot] * window[slot];
+            }
+            window[slot] = close;
+            sum += close;
+            sumSq += close * close;
+            count++;
+            if (count < window.length) {
+                return null;
+            }
+            int n = window.length;
+            double mean = sum / n;
+            double std = Math.sqrt(Math.max(0.0, sumSq / n - mean * mean)); // 浮點誤差可能讓變異數略小於 0
+            return new BollingerBand(date, mean + width * std, mean, mean - width * std);
+        }
+    }
+
+    // KDJ 隨機指標：RSV 取近 rPeriod 日的最高最低價，K、D 以 1/kPeriod、1/dPeriod 平滑（初始 50），J = 3K - 2D
+    private static class KdjCalc {
+        private final RollingExtreme highest;
+        private final RollingExtreme lowest;
+        private final int rPeriod;
+        private final int kPeriod;
+        private final int dPeriod;
+        private int count;
+        private double k = 50.0;
+        private double d = 50.0;
+
+        KdjCalc(int rPeriod, int kPeriod, int dPeriod) {
+            this.highest = new RollingExtreme(rPeriod, true);
+            this.lowest = new RollingExtreme(rPeriod, false);
+            this.rPeriod = rPeriod;
+            this.kPeriod = kPeriod;
+            this.dPeriod = dPeriod;
+        }
+
+        KDJ update(LocalDate date, double high, double low, double close) {
+            double hh = highest.push(high);
+            double ll = lowest.push(low);
+            count++;
+            if (count < rPeriod) {
+                return null;
+            }
+            double rsv = hh == ll ? 50.0 : (close - ll) / (hh - ll) * 100.0;
+            k = (k * (kPeriod - 1) + rsv) / kPeriod;
+            d = (d * (dPeriod - 1) + k) / dPeriod;
+            return new KDJ(date, k, d, 3 * k - 2 * d);
+        }
+    }
+
+    // 滑動視窗的最大（或最小）值：單調佇列，每筆資料最多進出佇列一次，攤銷 O(1)
+    private static class RollingExtreme {
+        private final int period;
+        private final boolean max;
+        private final long[] index; // 環狀佇列：資料序號
+        private final double[] value; // 環狀佇列：資料值
+        private int head;
+        private int size;
+        private long seq;
+
+        RollingExtreme(int period, boolean max) {
+            this.period = period;
+            this.max = max;
+            this.index = new long[period];
+            this.value = new double[period];
+        }
+
+        double push(double v) {
+            // 移出已滑出視窗的資料
+            if (size > 0 && index[head] <= seq - period) {
+                head = (head + 1) % period;
+                size--;
+            }
+            // 從尾端移除不可能再成為極值的資料
+            while (size > 0) {
+                int tail = (head + size - 1) % period;
+                if (max ? value[tail] <= v : value[tail] >= v) {
+                    size--;
+                } else {
+                    break;
+                }
+            }
+            int slot = (head + size) % period;
+            index[slot] = seq;
+            value[slot] = v;
+            size++;
+            seq++;
+            return value[head];
+        }
+    }
+}
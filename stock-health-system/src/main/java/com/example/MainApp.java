@@ -2,7 +2,10 @@ package com.example;
 
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.embed.swing.SwingNode;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -10,47 +13,27 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.layout.*;
+import javafx.scene.paint.Color;  // 顏色設定用於圖表線條
 import javafx.stage.Stage;
-import javafx.animation.PauseTransition;
-import javafx.util.Duration;
-
-import javax.swing.SwingUtilities;
-import javax.swing.Timer;
-
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartPanel;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.axis.CategoryAxis;
-import org.jfree.chart.axis.CategoryLabelPositions;
-import org.jfree.chart.plot.CategoryPlot;
-import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.chart.title.TextTitle;
-import org.jfree.data.category.DefaultCategoryDataset;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-import org.jfree.chart.renderer.category.LineAndShapeRenderer;
-
-import java.awt.Font;
-import java.awt.Color;  // 顏色設定用於 MACD 圖表線條
-import java.text.SimpleDateFormat;
-import java.util.Date;
+
+
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.stream.Collectors;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.util.Properties;
 
 public class MainApp extends Application {
     private final FugleService service = new FugleService(); // 使用 Fugle API 做資料存取
+    private final ForeignNetScraper foreignNetScraper = new ForeignNetScraper(); // 外資空口數（本機快取 + 收盤後才更新）
+    private final IndicatorEngine indicators = new IndicatorEngine(); // 本機技術指標（RSI、MACD 等），由快取的歷史 K 線餵入
     private TextField symbolField; // 股票代號
     private PasswordField keyField; // Fugle API Key
     private TextField daysField; // 天數輸入欄位（共用給歷史 K 線、RSI、MACD）
@@ -59,26 +42,27 @@ public class MainApp extends Application {
     private Button rsiBtn; // 查相對強弱指數按鈕
     private Button macdBtn; // 查移動平均線按鈕
     private Button foreignNetBtn; // 查外資空口數按鈕
+    private Button scanBtn; // 批次掃描按鈕
+    private ToggleButton streamBtn; // 即時串流（開啟時報價隨成交／五檔即時更新）
+    private QuoteStream quoteStream; // 目前開啟中的即時串流（只在 JavaFX 執行緒存取）
+    private String streamStatus = ""; // 即時串流的連線狀態文字
     private TextArea resultArea; // 文字顯示區塊
     private ScrollPane chartPane; // 圖表顯示區塊
     private BorderPane root;  // 讓 queryHistory() 可存取
-    private ChartPanel currentChartPanel;  // 存取 ChartPanel 成員，允許多次 repaint（解決 SwingNode 延遲）
+    private Region currentChart;  // 目前顯示中的圖表（視窗縮放時調整它的尺寸）
+    // 各畫面常駐的圖表（JavaFX Canvas）：第一次查詢時建立，之後只換資料重畫
+    private CandleChart historyChart;  // K 線 + 成交量（日期軸）
+    private CanvasChart rsiChart;
+    private CanvasChart macdChart;
+    private CanvasChart foreignNetChart;
     private Stage primaryStage;  // 將 stage 升級為類別成員變數，讓 createLineChart 可存取（修 stage cannot find symbol）
+    private CompletableFuture<?> viewTask;  // 目前畫面進行中的查詢（切換到任何查詢或重複點擊時取消前一個）
 
-    // 在類別載入時讀取版本號
-    private static String APP_VERSION = "Unknown";
-    static {
-        try (InputStream input = MainApp.class.getClassLoader()
-                .getResourceAsStream("application.properties")) {
-            if (input != null) {
-                Properties prop = new Properties();
-                prop.load(input);
-                APP_VERSION = prop.getProperty("app.version", "Unknown");
-            }
-        } catch (IOException e) {
-            System.err.println("無法載入版本資訊: " + e.getMessage());
-        }
-    }
+    // 批次掃描：同時進行的請求數（每分鐘請求上限由 FugleService 的速率限制統一控制，見 application.properties）
+    private static final int SCAN_MAX_CONCURRENT = AppSettings.load().getInt("scan.max-concurrent", 8);
+
+    // 在類別載入時讀取版本號（application.properties，由 Maven 打包時填入）
+    private static final String APP_VERSION = AppSettings.load().get("app.version", "Unknown");
 
     @Override
     public void start(Stage stage) {
@@ -150,7 +134,17 @@ public class MainApp extends Application {
         foreignNetBtn.setOnAction(e -> queryForeignNetPosition());
         foreignNetBtn.setPrefWidth(120); // 按鈕寬度調整為120
 
-        buttonBox.getChildren().addAll(queryBtn, historyBtn, rsiBtn, macdBtn, foreignNetBtn); // 添加子節點到容器的操作，將 queryBtn、historyBtn、rsiBtn 和 macdBtn 加入 buttonBox
+        // 批次掃描 按鈕（股票代號欄位可輸入多檔，以逗號或空白分隔）
+        scanBtn = new Button("批次掃描");
+        scanBtn.setOnAction(e -> queryScan());
+        scanBtn.setPrefWidth(120); // 按鈕寬度調整為120
+
+        // 即時串流 切換按鈕（WebSocket 推播，不需重複點擊查即時報價）
+        streamBtn = new ToggleButton("即時串流");
+        streamBtn.setOnAction(e -> toggleStream());
+        streamBtn.setPrefWidth(120); // 按鈕寬度調整為120
+
+        buttonBox.getChildren().addAll(queryBtn, streamBtn, historyBtn, rsiBtn, macdBtn, foreignNetBtn, scanBtn); // 添加子節點到容器的操作，將 queryBtn、historyBtn、rsiBtn 和 macdBtn 加入 buttonBox
         root.setLeft(buttonBox); // 將buttonBox（已含四個元素的VBox）設定為根容器root（BorderPane）的左側區域。結果：按鈕區固定在左側視窗，寬度150px（來自setPrefWidth(150)），高度跟隨視窗拉伸，但內容不變形。
 
         /* 下方右側版面配置（文字跟圖表顯示區），使用 HBox 水平排列 */
@@ -166,7 +160,7 @@ public class MainApp extends Application {
         HBox.setMargin(resultArea, new Insets(0, 0, 0, 15));  // 新增：向左微移 20px，盡可能對齊上方區塊位置
 
         // 圖表區塊
-        chartPane = new ScrollPane(createEmptyChartPanel());
+        chartPane = new ScrollPane();
         chartPane.setVisible(false); // 一開始不直接顯示圖表區塊
         chartPane.setPrefWidth(700); // 寬度維持 700px
         chartPane.setFitToWidth(true); // 啟用內容自動fit容器寬（Content Scaling，響應式延展/壓縮），當視窗窄時，內容壓縮（不水平滾動）；寬時，內容延展（但不超過原圖）
@@ -195,6 +189,7 @@ public class MainApp extends Application {
         }
 
         // 監聽視窗寬度變化，動態調整 chartPane 寬度
+        // 拖曳視窗時每個像素都會觸發，這裡只設定尺寸屬性；排版與 Canvas 重畫由 JavaFX 合併到下一個 pulse，每個 frame 只做一次
         scene.widthProperty().addListener((obs, oldWidth, newWidth) -> {
             resizeChartProportionally(); // 統一調用等比例縮放方法
         });
@@ -207,6 +202,7 @@ public class MainApp extends Application {
 
     // 查詢即時報價邏輯
     private void queryQuote() {
+        switchView(); // 切換查詢時關閉即時串流並取消前一個查詢，避免舊結果蓋掉新畫面
         String symbol = symbolField.getText().trim(); // 股票代號
         String apiKey = keyField.getText().trim(); // Fugle API Key
 
@@ -221,40 +217,280 @@ public class MainApp extends Application {
         }
 
         // 處裡非同步的操作，有點像是jQuery中的$.ajax(...)
-        CompletableFuture.supplyAsync(() -> service.fetchQuote(symbol, apiKey))
-                .thenAccept(quote -> Platform.runLater(() -> {
+        CompletableFuture<Quote> task = service.fetchQuoteAsync(symbol, apiKey);
+        viewTask = task;
+        task.thenAccept(quote -> Platform.runLater(() -> {
+                    if (task != viewTask) {
+                        return;  // 已經切換到其他查詢，丟棄這次結果
+                    }
                     if (quote != null) {
-                        StringBuilder sb = new StringBuilder(); // 使用 StringBuilder 可多行段落顯示，並且在字串相接時比較高效，無額外開銷
-                        sb.append(String.format("股票：%s（%s）\n昨日收盤價：%.0f\n開盤價：%.0f\n最高價：%.0f\n最低價：%.0f\n收盤價或現價：%.0f\n均價：%.2f\n總量：%d 股\n漲跌：%.0f\n幅度：%.2f\n",
-                                quote.symbol(), quote.name(), quote.previousClose(), quote.openPrice(), quote.highPrice(), quote.lowPrice(), quote.closePrice(),
-                                quote.avgPrice(), quote.tradeVolume(), quote.change(), quote.changePercent()));
-
-                        // 委買價區段內容
-                        sb.append("\n【委買價】\n\n");
-                        for (BidAsk ba : quote.bids()) {
-                            sb.append(String.format("    價格：%.0f\n    張數：%d\n\n", ba.price(), ba.size()));
-                        }
-
-                        // 委賣價區段內容
-                        sb.append("【委賣價】\n\n");
-                        for (BidAsk ba : quote.asks()) {
-                            sb.append(String.format("    價格：%.0f\n    張數：%d\n\n", ba.price(), ba.size()));
-                        }
-
-                        resultArea.setText(sb.toString());
+                        resultArea.setText(formatQuote(quote));
                     } else {
                         resultArea.setText("查詢失敗，請稍後再試\n若 API 不可用，請稍後再使用。");
                     }
                 }))
                 .exceptionally(ex -> {
-                    // exceptionally 像是 "非同步catch"，上游supplyAsync拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
+                    if (isCancellation(ex)) {
+                        return null;  // 被新的查詢取消，不需提示
+                    }
+                    // exceptionally 像是 "非同步catch"，上游非同步查詢拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
                     Platform.runLater(() -> showAlert("系統異常，請稍後再試：" + ex.getMessage()));
                     return null;
                 });
     }
 
+    // 即時報價文字（查即時報價與即時串流共用）
+    private String formatQuote(Quote quote) {
+        StringBuilder sb = new StringBuilder(); // 使用 StringBuilder 可多行段落顯示，並且在字串相接時比較高效，無額外開銷
+        sb.append(String.format("股票：%s（%s）\n昨日收盤價：%.0f\n開盤價：%.0f\n最高價：%.0f\n最低價：%.0f\n收盤價或現價：%.0f\n均價：%.2f\n總量：%d 股\n漲跌：%.0f\n幅度：%.2f\n",
+                quote.symbol(), quote.name(), quote.previousClose(), quote.openPrice(), quote.highPrice(), quote.lowPrice(), quote.closePrice(),
+                quote.avgPrice(), quote.tradeVolume(), quote.change(), quote.changePercent()));
+
+        // 委買價區段內容
+        sb.append("\n【委買價】\n\n");
+        for (BidAsk ba : quote.bids()) {
+            sb.append(String.format("    價格：%.0f\n    張數：%d\n\n", ba.price(), ba.size()));
+        }
+
+        // 委賣價區段內容
+        sb.append("【委賣價】\n\n");
+        for (BidAsk ba : quote.asks()) {
+            sb.append(String.format("    價格：%.0f\n    張數：%d\n\n", ba.price(), ba.size()));
+        }
+        return sb.toString();
+    }
+
+    // 即時串流開關：開啟時先用 REST 查一次完整報價當起點，再訂閱 WebSocket 的成交與五檔推播
+    private void toggleStream() {
+        if (!streamBtn.isSelected()) {
+            stopStream();
+            return;
+        }
+        cancelTask(viewTask); // 開啟串流也是切換畫面，取消前一個查詢
+        viewTask = null;
+
+        String symbol = symbolField.getText().trim(); // 股票代號
+        String apiKey = keyField.getText().trim(); // Fugle API Key
+
+        if (symbol.isEmpty()) {
+            streamBtn.setSelected(false);
+            showAlert("請輸入 股票代號");
+            return;
+        }
+
+        if (apiKey.isEmpty()) {
+            streamBtn.setSelected(false);
+            showAlert("請輸入 Fugle API Key");
+            return;
+        }
+
+        if (service.isOffline()) {
+            streamBtn.setSelected(false);
+            showAlert("離線模式無法使用即時串流");
+            return;
+        }
+
+        closeStream();
+        streamStatus = "連線中...";
+        resultArea.setText("即時串流連線中，請稍候...");
+
+        service.fetchQuoteAsync(symbol, apiKey)
+                .thenAccept(quote -> Platform.runLater(() -> {
+                    if (!streamBtn.isSelected() || quoteStream != null) {
+                        return;  // 等待期間已關閉（或已重新開啟）串流
+                    }
+                    openStream(symbol, apiKey, quote);
+                }))
+                .exceptionally(ex -> {
+                    Platform.runLater(() -> {
+                        streamBtn.setSelected(false);
+                        showAlert("系統異常，請稍後再試：" + ex.getMessage());
+                    });
+                    return null;
+                });
+    }
+
+    private void openStream(String symbol, String apiKey, Quote initial) {
+        // 推播可能一秒好幾筆：只記下「有新資料」，UI 執行緒有空時才讀最新報價重畫一次，不會每筆都排一次 runLater
+        AtomicBoolean renderScheduled = new AtomicBoolean(false);
+        QuoteStream[] self = new QuoteStream[1];
+
+        QuoteStream stream = service.openQuoteStream(symbol, apiKey, initial, new QuoteStream.Listener() {
+            @Override
+            public void onQuote(Quote quote) {
+                if (renderScheduled.compareAndSet(false, true)) {
+                    Platform.runLater(() -> {
+                        renderScheduled.set(false);
+                        if (quoteStream == self[0]) {
+                            renderStream();
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onStatus(String message) {
+                Platform.runLater(() -> {
+                    if (quoteStream == self[0]) {
+                        streamStatus = message;
+                        renderStream();
+                    }
+                });
+            }
+        });
+        self[0] = stream;
+        quoteStream = stream;
+        renderStream();
+    }
+
+    private void renderStream() {
+        resultArea.setText("【即時串流】" + streamStatus + "\n\n" + formatQuote(quoteStream.current()));
+    }
+
+    // 切換到另一個查詢：關閉串流，並取消目前畫面還在進行的查詢（含批次掃描），避免舊結果或掃描進度蓋掉新畫面
+    private void switchView() {
+        stopStream();
+        cancelTask(viewTask);
+        viewTask = null;
+    }
+
+    // 關閉串流並把按鈕切回未選取
+    private void stopStream() {
+        closeStream();
+        if (streamBtn != null) {
+            streamBtn.setSelected(false);
+        }
+    }
+
+    private void closeStream() {
+        if (quoteStream != null) {
+            quoteStream.close();
+            quoteStream = null;
+        }
+    }
+
+    // 視窗關閉時一併關閉 WebSocket 連線，並停止 FugleService、外資空口數爬蟲的 I/O 執行緒與連線
+    @Override
+    public void stop() {
+        closeStream();
+        service.close();
+        foreignNetScraper.close();
+    }
+
+    // 批次掃描多檔股票的即時報價：股票代號欄位以逗號或空白分隔多檔，結果邊回來邊放進可排序的表格
+    private void queryScan() {
+        switchView(); // 切換查詢時關閉即時串流並取消前一個查詢，避免舊結果蓋掉新畫面
+        String apiKey = keyField.getText().trim(); // Fugle API Key
+        List<String> symbols = new ArrayList<>();
+        for (String s : symbolField.getText().trim().split("[,，\\s]+")) {
+            if (!s.isEmpty() && !symbols.contains(s)) {
+                symbols.add(s);
+            }
+        }
+
+        if (symbols.isEmpty()) {
+            showAlert("請輸入 股票代號（多檔以逗號或空白分隔）");
+            return;
+        }
+
+        if (apiKey.isEmpty()) {
+            showAlert("請輸入 Fugle API Key");
+            return;
+        }
+
+        ObservableList<QuoteScanner.Result> rows = FXCollections.observableArrayList();
+        chartPane.setContent(createScanTable(rows));
+        chartPane.setVisible(true);
+        resizeChartProportionally();
+        resultArea.setText(String.format("批次掃描中：0 / %d", symbols.size()));
+
+        // 結果在背景執行緒陸續回來，先放進佇列，每次 UI 執行緒有空時一次搬進表格，避免每筆結果各排一次 runLater
+        ConcurrentLinkedQueue<QuoteScanner.Result> pending = new ConcurrentLinkedQueue<>();
+        AtomicBoolean flushScheduled = new AtomicBoolean(false);
+        QuoteScanner scanner = new QuoteScanner(service, SCAN_MAX_CONCURRENT);
+        CompletableFuture<?>[] self = new CompletableFuture<?>[1];
+
+        CompletableFuture<Void> task = scanner.scan(symbols, apiKey, result -> {
+            pending.add(result);
+            if (flushScheduled.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    flushScheduled.set(false);
+                    List<QuoteScanner.Result> batch = new ArrayList<>();
+                    QuoteScanner.Result r;
+                    while ((r = pending.poll()) != null) {
+                        batch.add(r);
+                    }
+                    rows.addAll(batch);
+                    if (self[0] != viewTask) {
+                        return;  // 已經切換到其他查詢，不再更新進度
+                    }
+                    resultArea.setText(String.format("批次掃描中：%d / %d", rows.size(), symbols.size()));
+                });
+            }
+        });
+        self[0] = task;
+        viewTask = task;
+
+        task.thenRun(() -> Platform.runLater(() -> {
+            if (task != viewTask) {
+                return;
+            }
+            long failed = rows.stream().filter(r -> r.error() != null).count();
+            FugleService.ClientStats stats = service.clientStats();
+            resultArea.setText(String.format("批次掃描完成：共 %d 檔，成功 %d 檔，失敗 %d 檔。\n\n點選表格欄位標題可排序。\n\n"
+                            + "連線池：%d 條連線（閒置 %d）\n請求：執行中 %d、排隊中 %d\n磁碟快取：%d 次請求，命中 %d、連網 %d\n"
+                            + "速率限制：等待配額 %d 次、被限流（429）%d 次、重試 %d 次",
+                    symbols.size(), rows.size() - failed, failed,
+                    stats.connections(), stats.idleConnections(), stats.runningCalls(), stats.queuedCalls(),
+                    stats.cacheRequests(), stats.cacheHits(), stats.networkRequests(),
+                    stats.rateQueued(), stats.rateThrottled(), stats.rateRetried()));
+        }));
+    }
+
+    // 批次掃描結果表格（SortedList 綁定表格的排序設定，新結果加入時會自動排到正確位置）
+    private Node createScanTable(ObservableList<QuoteScanner.Result> rows) {
+        TableView<QuoteScanner.Result> table = new TableView<>();
+
+        TableColumn<QuoteScanner.Result, String> symbolCol = new TableColumn<>("代號");
+        symbolCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(c.getValue().symbol()));
+
+        TableColumn<QuoteScanner.Result, String> nameCol = new TableColumn<>("名稱");
+        nameCol.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(
+                c.getValue().quote() != null ? c.getValue().quote().name() : c.getValue().error()));
+
+        table.getColumns().add(symbolCol);
+        table.getColumns().add(nameCol);
+        table.getColumns().add(numberColumn("現價", Quote::closePrice, "%.2f"));
+        table.getColumns().add(numberColumn("漲跌", Quote::change, "%.2f"));
+        table.getColumns().add(numberColumn("幅度(%)", Quote::changePercent, "%.2f"));
+        table.getColumns().add(numberColumn("總量", Quote::tradeVolume, "%,d"));
+
+        SortedList<QuoteScanner.Result> sorted = new SortedList<>(rows);
+        sorted.comparatorProperty().bind(table.comparatorProperty());
+        table.setItems(sorted);
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        return table;
+    }
+
+    // 數值欄位：查詢失敗的列顯示空白，排序時排在最前面
+    private TableColumn<QuoteScanner.Result, Number> numberColumn(String title, Function<Quote, Number> getter, String format) {
+        TableColumn<QuoteScanner.Result, Number> col = new TableColumn<>(title);
+        col.setCellValueFactory(c -> new ReadOnlyObjectWrapper<>(
+                c.getValue().quote() != null ? getter.apply(c.getValue().quote()) : null));
+        col.setCellFactory(c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format(format, value));
+            }
+        });
+        col.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return col;
+    }
+
     // 查詢歷史 K 線邏輯（使用共用 daysField）
     private void queryHistory() {
+        switchView(); // 切換查詢時關閉即時串流並取消前一個查詢，避免舊結果蓋掉新畫面
         String symbol = symbolField.getText().trim(); // 股票代號
         String apiKey = keyField.getText().trim(); // Fugle API Key
         String daysText = daysField.getText().trim(); // 使用共用天數欄位
@@ -282,55 +518,37 @@ public class MainApp extends Application {
         }
 
         // 處裡非同步的操作，有點像是jQuery中的$.ajax(...)
-        CompletableFuture.supplyAsync(() -> service.fetchHistory(symbol, days, apiKey))
-                .thenAccept(candles -> Platform.runLater(() -> {
+        CompletableFuture<CandleSeries> task = service.fetchHistoryAsync(symbol, days, apiKey);
+        viewTask = task;
+        task.thenAccept(candles -> Platform.runLater(() -> {
+                    if (task != viewTask) {
+                        return;  // 已經切換到其他查詢，丟棄這次結果
+                    }
                     if (!candles.isEmpty()) {
-                        chartPane.setContent(createLineChart(candles));
-                        // chartPane.setFitToWidth(false);  // 關閉自動壓縮，讓 ChartPanel 自然寬度，溢出時滾動
-                        // chartPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);  // 水平滾動條自動出現（當寬度溢出時），確保用戶拖曳查看全圖，不切斷日期
-                        resizeChartProportionally(); // 改用統一的等比例縮放方法
-
-                        // 延遲 setVisible，給 Swing 初始化時間
-                        PauseTransition delayVisible = new PauseTransition(Duration.millis(400));
-                        delayVisible.setOnFinished(e -> {
-                            chartPane.setVisible(true);
-                        });
-                        delayVisible.play();
+                        updateCandleChart(candles);
+                        showChart(historyChart);
                         
                         // 原文字 + 歷史股價列表
-                        StringBuilder sb = new StringBuilder(String.format("歷史 K 線圖已載入（近 %d 日收盤價走勢）。\n\n歷史股價如下：\n\n", days)); // 使用 StringBuilder 可多行段落顯示，並且在字串相接時比較高效，無額外開銷
-                        for (Candle c : candles) {
+                        StringBuilder sb = new StringBuilder(String.format("歷史 K 線圖已載入（近 %d 日 K 線）。\n\n歷史股價如下：\n\n", days)); // 使用 StringBuilder 可多行段落顯示，並且在字串相接時比較高效，無額外開銷
+                        for (int i = 0; i < candles.size(); i++) {
                             sb.append(String.format("日期：%s\n開盤價：%.1f\n最高價：%.1f\n最低價：%.1f\n收盤價：%.1f\n成交量：%d\n漲跌：%.1f\n\n",
-                                c.date(), c.open(), c.high(), c.low(), c.close(), c.volume(), c.change()));
+                                candles.date(i), candles.open(i), candles.high(i), candles.low(i), candles.close(i), candles.volume(i), candles.change(i)));
                         }
 
-                        // 計算區間最高價（所有 high 的 max）和最低價（所有 low 的 min）
-                        // 用 Stream API：mapToDouble(Candle::high).max().orElse(0.0) - 高效 O(n)，method reference 簡潔
-                        double maxHigh = candles.stream().mapToDouble(Candle::high).max().orElse(0.0);  // 區間最高價
-                        double minLow = candles.stream().mapToDouble(Candle::low).min().orElse(0.0);  // 區間最低價
-
-                        // 找出達到最高價的所有日期，並按遞減（從最新到最舊）排序
-                        List<LocalDate> maxHighDates = candles.stream()
-                                .filter(c -> c.high() == maxHigh)
-                                .map(Candle::date)
-                                .sorted(Comparator.reverseOrder())
-                                .collect(Collectors.toList());
-                        String maxHighDateStr = maxHighDates.stream()
-                                .map(LocalDate::toString)
-                                .collect(Collectors.joining("、"));
-
-                        // 找出達到最低價的所有日期，並按遞減（從最新到最舊）排序
-                        List<LocalDate> minLowDates = candles.stream()
-                                .filter(c -> c.low() == minLow)
-                                .map(Candle::date)
-                                .sorted(Comparator.reverseOrder())
-                                .collect(Collectors.toList());
-                        String minLowDateStr = minLowDates.stream()
-                                .map(LocalDate::toString)
-                                .collect(Collectors.joining("、"));
+                        // 區間統計只走訪一次：最高價（high）／最低價（low）與達到的所有日期、收盤均價、標準差、最大回撤
+                        RangeStats stats = RangeStats.ofCandles(candles);
+                        double maxHigh = stats.max();  // 區間最高價
+                        double minLow = stats.min();  // 區間最低價
+                        String maxHighDateStr = joinDatesNewestFirst(stats.maxDates());  // 日期依遞減（從最新到最舊）排列
+                        String minLowDateStr = joinDatesNewestFirst(stats.minDates());
 
                         sb.append(String.format("區間最高價：%.1f（%s）\n", maxHigh, maxHighDateStr));  // 格式化添加（%.1f 保留1位小數）
                         sb.append(String.format("區間最低價：%.1f（%s）\n", minLow, minLowDateStr));  // 格式化添加（%.1f 保留1位小數）
+                        sb.append(String.format("區間均價：%.1f（標準差 %.2f）\n", stats.mean(), stats.stdDev()));
+                        if (stats.maxDrawdown() > 0) {
+                            sb.append(String.format("最大回撤：%.1f（%.2f%%，%s → %s）\n",
+                                    stats.maxDrawdown(), stats.maxDrawdownPercent(), stats.drawdownPeakDate(), stats.drawdownTroughDate()));
+                        }
 
                         resultArea.setText(sb.toString());  // 設定完整文字
                     } else {
@@ -338,7 +556,10 @@ public class MainApp extends Application {
                     }
                 }))
                 .exceptionally(ex -> {
-                    // exceptionally 像是 "非同步catch"，上游supplyAsync拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
+                    if (isCancellation(ex)) {
+                        return null;  // 被新的查詢取消，不需提示
+                    }
+                    // exceptionally 像是 "非同步catch"，上游非同步查詢拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
                     Platform.runLater(() -> showAlert("系統異常，請稍後再試：" + ex.getMessage()));
                     return null;
                 });
@@ -346,6 +567,7 @@ public class MainApp extends Application {
 
     // 查詢 RSI 邏輯（使用共用 daysField）
     private void queryRSI() {
+        switchView(); // 切換查詢時關閉即時串流並取消前一個查詢，避免舊結果蓋掉新畫面
         String symbol = symbolField.getText().trim(); // 股票代號
         String apiKey = keyField.getText().trim(); // Fugle API Key
         String daysText = daysField.getText().trim(); // 使用共用天數欄位
@@ -372,49 +594,28 @@ public class MainApp extends Application {
             return;
         }
 
-        // 處裡非同步的操作，有點像是jQuery中的$.ajax(...)
-        CompletableFuture.supplyAsync(() -> service.fetchRSI(symbol, days, apiKey))
-                .thenAccept(rsiList -> Platform.runLater(() -> {
-                    if (!rsiList.isEmpty()) {
-                        // RSI 盤中預估（基於資料歸檔，Fugle 的 API最其碼要在今天收盤之後，才會進行歸檔，在那之前，是不會有今天的資料的）
-                        LocalDate today = LocalDate.now();
-                        boolean hasToday = rsiList.stream().anyMatch(r -> r.date().equals(today));
-
-                        if (!hasToday) {
-                            Quote quote = service.fetchQuote(symbol, apiKey);
-                            List<Candle> history = service.fetchHistory(symbol, days, apiKey);
-
-                            // 建立今日虛擬K棒
-                            Candle todayCandle = new Candle(
-                                today,
-                                0, 0, 0, quote.closePrice(), 0L, 0.0
-                            );
-
-                            List<Candle> fullCandles = new ArrayList<>(history);
-                            fullCandles.add(todayCandle);
-                            fullCandles.sort(Comparator.comparing(Candle::date));
-
-                            // 呼叫標準 Wilder RSI 計算
-                            List<RSI> calculated = calculateWilderRSI(fullCandles, 6);
-
-                            if (!calculated.isEmpty()) {
-                                RSI todayRSI = calculated.get(calculated.size() - 1);
-                                rsiList.add(todayRSI);
-                                rsiList.sort(Comparator.comparing(RSI::date));
-                            }
-                        }
+        // 即時報價、歷史 K 線兩個請求同時發出（不在 JavaFX 執行緒上等待網路），RSI 由本機指標引擎計算，不再呼叫 /technical/rsi
+        // 歷史 K 線多抓 WARMUP_DAYS 天當暖機，讓區間起點的指標值與完整歷史計算的結果一致
+        LocalDate from = LocalDate.now().minusDays(days);
+        CompletableFuture<Quote> quoteRequest = service.fetchQuoteAsync(symbol, apiKey);
+        CompletableFuture<Quote> quoteFuture = quoteRequest.exceptionally(ex -> null);  // 報價失敗時只略過盤中預估，不影響指標顯示
+        CompletableFuture<CandleSeries> historyFuture = service.fetchHistoryAsync(symbol, days + IndicatorEngine.WARMUP_DAYS, apiKey);
+
+        CompletableFuture<List<RSI>> task = CompletableFuture.allOf(quoteFuture, historyFuture)
+                .thenApply(v -> {
+                    indicators.feed(symbol, historyFuture.join());
+                    return withIntradayRSI(symbol, indicators.rsi(symbol, from), quoteFuture.join(), historyFuture.join());
+                });
+        cancelWith(task, quoteRequest, historyFuture);
+        viewTask = task;
 
-                        chartPane.setContent(createRSIChart(rsiList));
-                        // chartPane.setFitToWidth(true);  // 關閉自動壓縮，讓 ChartPanel 自然寬度，溢出時滾動
-                        // chartPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);  // 水平滾動條自動出現（當寬度溢出時），確保用戶拖曳查看全圖，不切斷日期
-                        resizeChartProportionally(); // 改用統一的等比例縮放方法
-
-                        // 延遲 setVisible，給 Swing 初始化時間
-                        PauseTransition delayVisible = new PauseTransition(Duration.millis(400));
-                        delayVisible.setOnFinished(e -> {
-                            chartPane.setVisible(true);
-                        });
-                        delayVisible.play();
+        task.thenAccept(rsiList -> Platform.runLater(() -> {
+                    if (task != viewTask) {
+                        return;  // 已經有更新的請求，丟棄這次結果
+                    }
+                    if (!rsiList.isEmpty()) {
+                        updateRSIChart(rsiList);
+                        showChart(rsiChart);
                         
                         // RSI 文字列表
                         StringBuilder sb = new StringBuilder(String.format("相對強弱指標 （RSI）已載入（近 %d 日 RSI 走勢）。\n\n強弱指數如下：\n\n", days)); // 使用 StringBuilder 可多行段落顯示，並且在字串相接時比較高效，無額外開銷
@@ -423,33 +624,16 @@ public class MainApp extends Application {
                                 r.date(), r.rsi()));
                         }
 
-                        // 計算區間最強勢（所有 rsi 的 max）和最弱勢（所有 rsi 的 min）
-                        // 用 Stream API：mapToDouble(RSI::rsi).max().orElse(0.0) - 高效 O(n)，method reference 簡潔
-                        double maxRsi = rsiList.stream().mapToDouble(RSI::rsi).max().orElse(0.0);  // 區間最強勢
-                        double minRsi = rsiList.stream().mapToDouble(RSI::rsi).min().orElse(0.0);  // 區間最弱勢
-
-                        // 找出達到最高 RSI 的所有日期，並按遞減（從最新到最舊）排序
-                        List<LocalDate> maxRsiDates = rsiList.stream()
-                                .filter(r -> r.rsi() == maxRsi)
-                                .map(RSI::date)
-                                .sorted(Comparator.reverseOrder())
-                                .collect(Collectors.toList());
-                        String maxRsiDateStr = maxRsiDates.stream()
-                                .map(LocalDate::toString)
-                                .collect(Collectors.joining("、"));
-
-                        // 找出達到最低 RSI 的所有日期，並按遞減（從最新到最舊）排序
-                        List<LocalDate> minRsiDates = rsiList.stream()
-                                .filter(r -> r.rsi() == minRsi)
-                                .map(RSI::date)
-                                .sorted(Comparator.reverseOrder())
-                                .collect(Collectors.toList());
-                        String minRsiDateStr = minRsiDates.stream()
-                                .map(LocalDate::toString)
-                                .collect(Collectors.joining("、"));
+                        // 區間統計只走訪一次：最強勢（rsi 的 max）／最弱勢（rsi 的 min）與達到的所有日期、平均、標準差
+                        RangeStats stats = RangeStats.of(rsiList, RSI::date, RSI::rsi);
+                        double maxRsi = stats.max();  // 區間最強勢
+                        double minRsi = stats.min();  // 區間最弱勢
+                        String maxRsiDateStr = joinDatesNewestFirst(stats.maxDates());  // 日期依遞減（從最新到最舊）排列
+                        String minRsiDateStr = joinDatesNewestFirst(stats.minDates());
 
                         sb.append(String.format("區間最強勢：%.2f（%s）\n", maxRsi, maxRsiDateStr));  // 格式化添加（%.2f 保留2位小數）
                         sb.append(String.format("區間最弱勢：%.2f（%s）\n", minRsi, minRsiDateStr));  // 格式化添加（%.2f 保留2位小數）
+                        sb.append(String.format("區間平均：%.2f（標準差 %.2f）\n", stats.mean(), stats.stdDev()));
 
                         sb.append("\n* 超買與超賣：\n");
                         sb.append("  當RSI 顯示超買時（通常大於70），可能表示市場過熱，價格有回調的可能，是賣出訊號。 反之，當RSI 顯示超賣時（通常小於30），可能表示市場過冷，價格有上漲的潛力，是買入訊號。\n\n");
@@ -462,53 +646,33 @@ public class MainApp extends Application {
                     }
                 }))
                 .exceptionally(ex -> {
-                    // exceptionally 像是 "非同步catch"，上游supplyAsync拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
+                    if (isCancellation(ex)) {
+                        return null;  // 被新的請求取消，不需提示
+                    }
+                    // exceptionally 像是 "非同步catch"，上游非同步查詢拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
                     Platform.runLater(() -> showAlert("系統異常，請稍後再試：" + ex.getMessage()));
                     return null;
                 });
     }
 
-    // 標準 Wilder RSI 計算
-    private List<RSI> calculateWilderRSI(List<Candle> candles, int period) {
-        List<RSI> result = new ArrayList<>();
-        if (candles.size() < period + 1) return result;
-
-        double avgGain = 0.0;
-        double avgLoss = 0.0;
-
-        // 計算最初 period 天的平均漲跌
-        for (int i = 1; i <= period; i++) {
-            double change = candles.get(i).close() - candles.get(i - 1).close();
-            if (change > 0) avgGain += change;
-            else avgLoss += Math.abs(change);
+    // RSI 盤中預估：指標引擎只收收盤定案的 K 棒，今天還在盤中的那一根每次查詢都重新預估
+    // 用今日虛擬K棒在目前狀態上預估今日的 RSI（不改變引擎狀態，盤中再查詢會跟著最新價格更新）
+    private List<RSI> withIntradayRSI(String symbol, List<RSI> rsiList, Quote quote, CandleSeries history) {
+        Candle todayCandle = todayCandle(quote, history);
+        if (rsiList.isEmpty() || todayCandle == null) {
+            return rsiList;
         }
-        avgGain /= period;
-        avgLoss /= period;
 
-        // 第 period 天的 RSI
-        double rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
-        double rsi = avgLoss == 0 ? 100 : 100.0 - (100.0 / (1.0 + rs));
-        result.add(new RSI(candles.get(period).date(), Math.round(rsi * 100.0) / 100.0));
-
-        // 之後使用 Wilder 平滑公式
-        for (int i = period + 1; i < candles.size(); i++) {
-            double change = candles.get(i).close() - candles.get(i - 1).close();
-            double gain = change > 0 ? change : 0.0;
-            double loss = change < 0 ? Math.abs(change) : 0.0;
-
-            avgGain = (avgGain * (period - 1) + gain) / period;
-            avgLoss = (avgLoss * (period - 1) + loss) / period;
-
-            rs = avgLoss == 0 ? 100 : avgGain / avgLoss;
-            rsi = avgLoss == 0 ? 100 : 100.0 - (100.0 / (1.0 + rs));
-
-            result.add(new RSI(candles.get(i).date(), Math.round(rsi * 100.0) / 100.0));
+        RSI todayRSI = indicators.previewRSI(symbol, todayCandle);
+        if (todayRSI != null) {
+            rsiList.add(todayRSI);
         }
-        return result;
+        return rsiList;
     }
 
     // 查詢 MACD 邏輯（使用共用 daysField）
     private void queryMACD() {
+        switchView(); // 切換查詢時關閉即時串流並取消前一個查詢，避免舊結果蓋掉新畫面
         String symbol = symbolField.getText().trim(); // 股票代號
         String apiKey = keyField.getText().trim(); // Fugle API Key
         String daysText = daysField.getText().trim(); // 使用共用天數欄位
@@ -535,49 +699,28 @@ public class MainApp extends Application {
             return;
         }
 
-        // 處裡非同步的操作，有點像是jQuery中的$.ajax(...)
-        CompletableFuture.supplyAsync(() -> service.fetchMACD(symbol, days, apiKey))
-                .thenAccept(macdList -> Platform.runLater(() -> {
-                    if (!macdList.isEmpty()) {
-                        // MACD 盤中預估（基於資料歸檔，Fugle 的 API最其碼要在今天收盤之後，才會進行歸檔，在那之前，是不會有今天的資料的）
-                        LocalDate today = LocalDate.now();
-                        boolean hasToday = macdList.stream().anyMatch(m -> m.date().equals(today));
-
-                        if (!hasToday) {
-                            Quote quote = service.fetchQuote(symbol, apiKey);
-                            List<Candle> history = service.fetchHistory(symbol, days, apiKey);
-
-                            // 建立今日虛擬K棒
-                            Candle todayCandle = new Candle(
-                                today,
-                                0, 0, 0, quote.closePrice(), 0L, 0.0
-                            );
-
-                            List<Candle> fullCandles = new ArrayList<>(history);
-                            fullCandles.add(todayCandle);
-                            fullCandles.sort(Comparator.comparing(Candle::date));
-
-                            // 呼叫標準 MACD 計算
-                            List<MACD> calculated = calculateStandardMACD(fullCandles);
-
-                            if (!calculated.isEmpty()) {
-                                MACD todayMACD = calculated.get(calculated.size() - 1);
-                                macdList.add(todayMACD);
-                                macdList.sort(Comparator.comparing(MACD::date));
-                            }
-                        }
+        // 即時報價、歷史 K 線兩個請求同時發出（不在 JavaFX 執行緒上等待網路），MACD 由本機指標引擎計算，不再呼叫 /technical/macd
+        // 歷史 K 線多抓 WARMUP_DAYS 天當暖機，讓 EMA 在區間起點前就已收斂
+        LocalDate from = LocalDate.now().minusDays(days);
+        CompletableFuture<Quote> quoteRequest = service.fetchQuoteAsync(symbol, apiKey);
+        CompletableFuture<Quote> quoteFuture = quoteRequest.exceptionally(ex -> null);  // 報價失敗時只略過盤中預估，不影響指標顯示
+        CompletableFuture<CandleSeries> historyFuture = service.fetchHistoryAsync(symbol, days + IndicatorEngine.WARMUP_DAYS, apiKey);
+
+        CompletableFuture<List<MACD>> task = CompletableFuture.allOf(quoteFuture, historyFuture)
+                .thenApply(v -> {
+                    indicators.feed(symbol, historyFuture.join());
+                    return withIntradayMACD(symbol, indicators.macd(symbol, from), quoteFuture.join(), historyFuture.join());
+                });
+        cancelWith(task, quoteRequest, historyFuture);
+        viewTask = task;
 
-                        chartPane.setContent(createMACDChart(macdList));
-                        // chartPane.setFitToWidth(true);  // 關閉自動壓縮，讓 ChartPanel 自然寬度，溢出時滾動
-                        // chartPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);  // 水平滾動條自動出現（當寬度溢出時），確保用戶拖曳查看全圖，不切斷日期
-                        resizeChartProportionally(); // 改用統一的等比例縮放方法
-
-                        // 延遲 setVisible，給 Swing 初始化時間
-                        PauseTransition delayVisible = new PauseTransition(Duration.millis(400));
-                        delayVisible.setOnFinished(e -> {
-                            chartPane.setVisible(true);
-                        });
-                        delayVisible.play();
+        task.thenAccept(macdList -> Platform.runLater(() -> {
+                    if (task != viewTask) {
+                        return;  // 已經有更新的請求，丟棄這次結果
+                    }
+                    if (!macdList.isEmpty()) {
+                        updateMACDChart(macdList);
+                        showChart(macdChart);
                         
                         // MACD 文字列表
                         StringBuilder sb = new StringBuilder(String.format("移動平均指標 （MACD）已載入（近 %d 日MACD走勢）。\n\n移動平均指數如下：\n\n", days)); // 使用 StringBuilder 可多行段落顯示，並且在字串相接時比較高效，無額外開銷
@@ -586,33 +729,16 @@ public class MainApp extends Application {
                                 m.date(), m.macdLine(), m.signalLine()));
                         }
 
-                        // 計算區間最強勢（所有 macdLine 的 max）和最弱勢（所有 macdLine 的 min）
-                        // 用 Stream API：mapToDouble(MACD::macdLine).max().orElse(0.0) - 高效 O(n)，method reference 簡潔
-                        double maxMacd = macdList.stream().mapToDouble(MACD::macdLine).max().orElse(0.0);  // 區間最強勢
-                        double minMacd = macdList.stream().mapToDouble(MACD::macdLine).min().orElse(0.0);  // 區間最弱勢
-
-                        // 找出達到最高 MACD 的所有日期，並按遞減（從最新到最舊）排序
-                        List<LocalDate> maxMacdDates = macdList.stream()
-                                .filter(m -> m.macdLine() == maxMacd)
-                                .map(MACD::date)
-                                .sorted(Comparator.reverseOrder())
-                                .collect(Collectors.toList());
-                        String maxMacdDateStr = maxMacdDates.stream()
-                                .map(LocalDate::toString)
-                                .collect(Collectors.joining("、"));
-
-                        // 找出達到最低 MACD 的所有日期，並按遞減（從最新到最舊）排序
-                        List<LocalDate> minMacdDates = macdList.stream()
-                                .filter(m -> m.macdLine() == minMacd)
-                                .map(MACD::date)
-                                .sorted(Comparator.reverseOrder())
-                                .collect(Collectors.toList());
-                        String minMacdDateStr = minMacdDates.stream()
-                                .map(LocalDate::toString)
-                                .collect(Collectors.joining("、"));
+                        // 區間統計只走訪一次：最強勢（macdLine 的 max）／最弱勢（macdLine 的 min）與達到的所有日期、平均、標準差
+                        RangeStats stats = RangeStats.of(macdList, MACD::date, MACD::macdLine);
+                        double maxMacd = stats.max();  // 區間最強勢
+                        double minMacd = stats.min();  // 區間最弱勢
+                        String maxMacdDateStr = joinDatesNewestFirst(stats.maxDates());  // 日期依遞減（從最新到最舊）排列
+                        String minMacdDateStr = joinDatesNewestFirst(stats.minDates());
 
                         sb.append(String.format("區間最強勢：%.2f（%s）\n", maxMacd, maxMacdDateStr));  // 格式化添加（%.2f 保留2位小數）
                         sb.append(String.format("區間最弱勢：%.2f（%s）\n", minMacd, minMacdDateStr));  // 格式化添加（%.2f 保留2位小數）
+                        sb.append(String.format("區間平均：%.2f（標準差 %.2f）\n", stats.mean(), stats.stdDev()));
 
                         // 新增：MACD 解釋文字（修正死亡交叉為賣出訊號）
                         sb.append("\n* 黃金交叉：\n");
@@ -626,234 +752,122 @@ public class MainApp extends Application {
                     }
                 }))
                 .exceptionally(ex -> {
-                    // exceptionally 像是 "非同步catch"，上游supplyAsync拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
+                    if (isCancellation(ex)) {
+                        return null;  // 被新的請求取消，不需提示
+                    }
+                    // exceptionally 像是 "非同步catch"，上游非同步查詢拋錯（如Fugle Key無效）時，自動恢復null並秀Alert—避免整個CompletableFuture崩潰，若直接showAlert，會造成整個應用程式crash
                     Platform.runLater(() -> showAlert("系統異常，請稍後再試：" + ex.getMessage()));
                     return null;
                 });
     }
 
-    // 標準 MACD 計算（12,26,9）
-    private List<MACD> calculateStandardMACD(List<Candle> candles) {
-        List<MACD> result = new ArrayList<>();
-        if (candles.size() < 26 + 9) return result;
-
-        int fast = 12, slow = 26, signal = 9;
-        double[] close = candles.stream().mapToDouble(Candle::close).toArray();
-
-        // EMA12, EMA26
-        double emaFast = close[0];
-        double emaSlow = close[0];
-        double multiplierFast = 2.0 / (fast + 1);
-        double multiplierSlow = 2.0 / (slow + 1);
-
-        for (int i = 1; i < close.length; i++) {
-            emaFast = (close[i] - emaFast) * multiplierFast + emaFast;
-            emaSlow = (close[i] - emaSlow) * multiplierSlow + emaSlow;
-
-            if (i >= slow - 1) {
-                double dif = emaFast - emaSlow;
-
-                // 從第 slow-1 天開始計算 DEA (Signal Line)
-                if (i == slow - 1) {
-                    result.add(new MACD(candles.get(i).date(), dif, dif)); // 第一筆 DEA = DIF
-                } else {
-                    MACD prev = result.get(result.size() - 1);
-                    double dea = (dif - prev.signalLine()) * (2.0 / (signal + 1)) + prev.signalLine();
-                    result.add(new MACD(candles.get(i).date(), dif, dea));
-                }
-            }
+    // 今日虛擬K棒：優先用即時報價的現價；報價失敗時退回歷史 K 線裡今天盤中的那一根；都沒有則不預估
+    private static Candle todayCandle(Quote quote, CandleSeries history) {
+        LocalDate today = LocalDate.now();
+        if (quote != null) {
+            return new Candle(today, 0, 0, 0, quote.closePrice(), 0L, 0.0);
+        }
+        if (!history.isEmpty() && history.lastDate().equals(today)) {
+            return history.get(history.size() - 1);
         }
-        return result;
+        return null;
     }
 
-    // 查外資空口數
+    // MACD 盤中預估：指標引擎只收收盤定案的 K 棒，今天還在盤中的那一根每次查詢都重新預估
+    // 用今日虛擬K棒在目前狀態上預估今日的 MACD（不改變引擎狀態，盤中再查詢會跟著最新價格更新）
+    private List<MACD> withIntradayMACD(String symbol, List<MACD> macdList, Quote quote, CandleSeries history) {
+        Candle todayCandle = todayCandle(quote, history);
+        if (macdList.isEmpty() || todayCandle == null) {
+            return macdList;
+        }
+
+        MACD todayMACD = indicators.previewMACD(symbol, todayCandle);
+        if (todayMACD != null) {
+            macdList.add(todayMACD);
+        }
+        return macdList;
+    }
+
+    // 查外資空口數：資料由 ForeignNetScraper 依日期存在本機，收盤公布後才會重新抓網頁，其餘時候直接讀本機資料
     private void queryForeignNetPosition() {
+        switchView(); // 切換查詢時關閉即時串流並取消前一個查詢，避免舊結果蓋掉新畫面
         resultArea.setText("外資空口數載入中，請稍候...");
         chartPane.setVisible(false);
 
-        CompletableFuture.supplyAsync(() -> {
-            try {
-                Document doc = Jsoup.connect("https://stock.wearn.com/taifexphoto.asp")
-                        .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                        .timeout(12000)
-                        .get();
-
-                Element table = doc.selectFirst("table.taifexphoto");
-                if (table == null) {
-                    return new ForeignNetData("錯誤：無法找到外資空口數表格（網站可能改版）", null, null);
-                }
-
-                // 原始資料
-                List<String> originalDates = new ArrayList<>();
-                List<Integer> originalNet = new ArrayList<>();
-
-                Elements rows = table.select("tr:gt(1)");
-                for (Element row : rows) {
-                    Elements tds = row.select("td");
-                    if (tds.size() >= 9) {
-                        String dateStr = tds.get(0).text().trim();
-                        String foreignStr = tds.get(5).text().trim().replace(",", "");
-
-                        if (dateStr.matches("\\d{3}/\\d{2}/\\d{2}")) {
-                            int rocYear = Integer.parseInt(dateStr.substring(0, 3));
-                            int year = 1911 + rocYear;
-                            String adDate = year + dateStr.substring(3); // 2025/11/21
-
-                            try {
-                                int net = Integer.parseInt(foreignStr);
-                                originalDates.add(adDate);
-                                originalNet.add(net);
-                            } catch (NumberFormatException ignored) {}
-                        }
+        CompletableFuture<ForeignNetScraper.Result> task = foreignNetScraper.fetchAsync();
+        viewTask = task;
+        task.thenApply(this::formatForeignNet)
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    return new ForeignNetData("爬蟲失敗：" + cause.getMessage(), null, null);
+                })
+                .thenAccept(data -> Platform.runLater(() -> {
+                    if (task != viewTask) {
+                        return;  // 已經切換到其他查詢，丟棄這次結果
                     }
-                }
-
-                if (originalDates.isEmpty()) {
-                    return new ForeignNetData("錯誤：未解析到任何外資空口數資料", null, null);
-                }
+                    resultArea.setText(data.text);
 
-                // 反轉：最舊在前
-                List<String> ascendingDates = new ArrayList<>(originalDates);
-                List<Integer> ascendingNet = new ArrayList<>(originalNet);
-                Collections.reverse(ascendingDates);
-                Collections.reverse(ascendingNet);
-
-                // 轉換為 JFreeChart 格式 yyyy-MM-dd
-                List<String> chartDates = ascendingDates.stream()
-                        .map(d -> d.replace("/", "-"))
-                        .collect(Collectors.toList());
-
-                // 計算增減（基於原始順序：最新在前）
-                List<Integer> changes = new ArrayList<>();
-                for (int i = 0; i < originalNet.size(); i++) {
-                    if (i < originalNet.size() - 1) {
-                        changes.add(originalNet.get(i) - originalNet.get(i + 1));
-                    } else {
-                        changes.add(0);
+                    if (data.dates != null && data.netPositions != null) {
+                        updateForeignNetChart(data.dates, data.netPositions);
+                        showChart(foreignNetChart);
                     }
-                }
-                // 反轉增減順序對應文字區
-                Collections.reverse(changes);
-
-                // 刪除第一筆不需顯示的資料
-                if (!ascendingDates.isEmpty()) {
-                    ascendingDates.remove(0);
-                    ascendingNet.remove(0);
-                    chartDates.remove(0);
-                    changes.remove(0);
-                }
-
-                // 最大最小空口數
-                int highestNet = ascendingNet.stream().mapToInt(Integer::intValue).min().orElse(0);
-                int lowestNet  = ascendingNet.stream().mapToInt(Integer::intValue).max().orElse(0);
-
-                List<String> highestDates = new ArrayList<>();
-                List<String> lowestDates = new ArrayList<>();
-                for (int i = 0; i < ascendingNet.size(); i++) {
-                    if (ascendingNet.get(i) == highestNet) highestDates.add(ascendingDates.get(i));
-                    if (ascendingNet.get(i) == lowestNet)  lowestDates.add(ascendingDates.get(i));
-                }
+                }));
+    }
 
-                // 文字區
-                StringBuilder sb = new StringBuilder();
-                sb.append("外資空口數已載入\n\n");
-                sb.append("歷史空口數如下：\n\n");
+    // 文字區與圖表資料（最舊在前）；第一筆沒有前一日可比較增減，不顯示
+    private ForeignNetData formatForeignNet(ForeignNetScraper.Result result) {
+        List<ForeignNetScraper.Row> rows = result.rows();
+        if (rows.size() < 2) {
+            return new ForeignNetData("錯誤：外資空口數資料不足", null, null);
+        }
 
-                for (int i = 0; i < ascendingDates.size(); i++) {
-                    String displayDate = ascendingDates.get(i).replace("/", "-"); // 轉成 yyyy-MM-dd
-                    sb.append(String.format("日期：%s\n空口數：%,d\n增減：%,d\n\n",
-                            displayDate, ascendingNet.get(i), changes.get(i)));
-                }
+        List<String> chartDates = new ArrayList<>(rows.size() - 1);
+        List<Integer> netPositions = new ArrayList<>(rows.size() - 1);
+        RangeStats stats = new RangeStats(); // 最大最小空口數（單次走訪）
 
-                sb.append(String.format("區間最高空口數：%,d（%s）\n",
-                        highestNet, String.join("、", highestDates.stream()
-                                .map(d -> d.replace("/", "-"))
-                                .collect(Collectors.toList()))));
-                sb.append(String.format("區間最低空口數：%,d（%s）\n",
-                        lowestNet, String.join("、", lowestDates.stream()
-                                .map(d -> d.replace("/", "-"))
-                                .collect(Collectors.toList()))));
+        StringBuilder sb = new StringBuilder();
+        sb.append("外資空口數已載入\n\n");
+        if (result.stale()) {
+            sb.append("（無法連線更新，以下為上次下載的資料：").append(result.warning()).append("）\n\n");
+        }
+        sb.append("歷史空口數如下：\n\n");
+
+        for (int i = 1; i < rows.size(); i++) {
+            ForeignNetScraper.Row row = rows.get(i);
+            int change = row.net() - rows.get(i - 1).net();
+            chartDates.add(row.date().toString()); // yyyy-MM-dd
+            netPositions.add(row.net());
+            stats.accept(row.date(), row.net());
+            sb.append(String.format("日期：%s\n空口數：%,d\n增減：%,d\n\n", row.date(), row.net(), change));
+        }
 
-                return new ForeignNetData(sb.toString(), chartDates, ascendingNet);
+        // 淨空口數為負值，數值越小代表空單越多，所以「最高空口數」取最小值
+        sb.append(String.format("區間最高空口數：%,d（%s）\n", (int) stats.min(), joinDates(stats.minDates())));
+        sb.append(String.format("區間最低空口數：%,d（%s）\n", (int) stats.max(), joinDates(stats.maxDates())));
 
-            } catch (Exception e) {
-                return new ForeignNetData("爬蟲失敗：" + e.getMessage(), null, null);
-            }
-        }).thenAccept(data -> Platform.runLater(() -> {
-            resultArea.setText(data.text);
-
-            if (data.dates != null && data.netPositions != null) {
-                chartPane.setContent(createForeignNetLineChart(data.dates, data.netPositions));
-                resizeChartProportionally();
-                PauseTransition delay = new PauseTransition(Duration.millis(400));
-                delay.setOnFinished(e -> chartPane.setVisible(true));
-                delay.play();
-            }
-        }));
+        return new ForeignNetData(sb.toString(), chartDates, netPositions);
     }
 
     // 外資空口數折線圖（Y 軸倒置 + 自動範圍 + 與 K 線完全一致）
-    private Node createForeignNetLineChart(List<String> dates, List<Integer> netPositions) {
-        SwingNode swingNode = new SwingNode();
-
-        SwingUtilities.invokeLater(() -> {
-            DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-            for (int i = 0; i < dates.size(); i++) {
-                dataset.addValue(netPositions.get(i), "外資淨空口數", dates.get(i));
-            }
-
-            JFreeChart chart = ChartFactory.createLineChart(
-                "外資台指期淨空口數趨勢圖",
-                "日期",
-                "淨空口數",
-                dataset,
-                PlotOrientation.VERTICAL,
-                false, true, false
-            );
-
-            CategoryPlot plot = chart.getCategoryPlot();
-
-            // Y 軸倒置（數值越小越在上方）
-            plot.getRangeAxis().setInverted(true);
-
-            // 自動調整範圍 + 10% padding
-            if (!netPositions.isEmpty()) {
-                int min = netPositions.stream().mapToInt(Integer::intValue).min().orElse(0);
-                int max = netPositions.stream().mapToInt(Integer::intValue).max().orElse(0);
-                int range = max - min;
-                int padding = range == 0 ? 2000 : (int) (range * 0.1);
-
-                plot.getRangeAxis().setLowerBound(min - padding);
-                plot.getRangeAxis().setUpperBound(max + padding);
-            }
+    private void updateForeignNetChart(List<String> dates, List<Integer> netPositions) {
+        if (foreignNetChart == null) {
+            foreignNetChart = new CanvasChart("日期", "淨空口數");
+            foreignNetChart.setInverted(true); // Y 軸倒置（數值越小越在上方）
+        }
 
-            Font font = new Font("Microsoft YaHei", Font.BOLD, 14);
-            chart.getTitle().setFont(font);
-            plot.getDomainAxis().setLabelFont(font);
-            plot.getRangeAxis().setLabelFont(font);
-
-            LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
-            renderer.setSeriesPaint(0, Color.BLUE);
-            renderer.setSeriesStroke(0, new java.awt.BasicStroke(2.5f));
-
-            CategoryAxis domainAxis = (CategoryAxis) plot.getDomainAxis();
-            domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
-
-            currentChartPanel = new ChartPanel(chart);
-            currentChartPanel.setPreferredSize(new java.awt.Dimension(695, 400));
-            swingNode.setContent(currentChartPanel);
-
-            Timer timer = new Timer(200, e -> {
-                currentChartPanel.revalidate();
-                currentChartPanel.repaint();
-                ((Timer) e.getSource()).stop();
-            });
-            timer.setRepeats(false);
-            timer.start();
-        });
+        double[] values = new double[netPositions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = netPositions.get(i);
+        }
 
-        return swingNode;
+        // 自動調整範圍 + 10% padding
+        int min = netPositions.stream().mapToInt(Integer::intValue).min().orElse(0);
+        int max = netPositions.stream().mapToInt(Integer::intValue).max().orElse(0);
+        int range = max - min;
+        int padding = range == 0 ? 2000 : (int) (range * 0.1);
+        foreignNetChart.setLines("外資台指期淨空口數趨勢圖", List.copyOf(dates),
+                List.of(new CanvasChart.Line("外資淨空口數", Color.BLUE, 2.5, values)),
+                min - padding, max + padding);
     }
 
     private static class ForeignNetData {
@@ -870,7 +884,8 @@ public class MainApp extends Application {
 
     // 等比例調整圖表尺寸（統一方法，避免程式碼重複）
     // 參數：無（自動從 scene 和 chartPane 讀取當前尺寸）
-    // 目的：根據視窗寬度計算等比例的圖表高度，並觸發 Swing 組件重繪
+    // 目的：根據視窗寬度計算等比例的圖表高度；只更新 prefWidth / prefHeight，不直接重畫
+    // 尺寸沒變時屬性不會發出通知，也不會要求重新排版
     private void resizeChartProportionally() {
         if (primaryStage == null || primaryStage.getScene() == null) {
             return; // 防止 stage 未初始化時調用
@@ -880,294 +895,130 @@ public class MainApp extends Application {
         double sceneWidth = primaryStage.getScene().getWidth();
         double availableWidth = sceneWidth - 400; // 左側 150px + 文字區 200px + 間距 50px
         
-        // 設定最小寬度 500px，避免過窄
-        double chartWidth = Math.max(500, availableWidth);
+        // 設定最小寬度 500px，避免過窄；取整數像素，不足 1px 的寬度變化不會觸發排版與重畫
+        double chartWidth = Math.floor(Math.max(500, availableWidth));
         
         // 等比例縮放：假設原始圖表是 16:9（可依需求調整 aspectRatio）
         double aspectRatio = 16.0 / 9.0; // 寬高比 16:9
-        double chartHeight = chartWidth / aspectRatio;
+        double chartHeight = Math.floor(chartWidth / aspectRatio);
         
         chartPane.setPrefWidth(chartWidth);
         chartPane.setPrefHeight(chartHeight); // 同步調整高度
         chartPane.setFitToWidth(false); // 關閉自動拉寬（改用等比例）
         chartPane.setFitToHeight(false); // 關閉自動拉高
         
-        // 若圖表已載入，延遲 200ms 後觸發 Swing 組件重繪
-        if (currentChartPanel != null) {
-            SwingUtilities.invokeLater(() -> {
-                // 調整 ChartPanel 實際尺寸（等比例）
-                currentChartPanel.setPreferredSize(
-                    new java.awt.Dimension((int)chartWidth, (int)chartHeight)
-                );
-                
-                Timer timer = new Timer(200, e -> {
-                    currentChartPanel.revalidate();
-                    currentChartPanel.repaint();
-                    ((Timer) e.getSource()).stop();
-                });
-                timer.setRepeats(false);
-                timer.start();
-            });
+        // 若圖表已載入，同步調整圖表尺寸（等比例），Canvas 會在下一個 pulse 排版時重畫一次
+        if (currentChart != null) {
+            currentChart.setPrefSize(chartWidth, chartHeight);
         }
     }
 
-    // 創建線圖（使用 JFreeChart API）：這是個私有方法，返回一個 Node（JavaFX 的 UI 節點），用來嵌入 SwingNode 組件到 ScrollPane 中顯示 K 線圖。
-    // 輸入：List<Candle> candles - 從 FugleService.fetchHistory() 取得的歷史 K 線資料（每個 Candle 含日期、開高低收等）。
-    // 輸出：SwingNode - 包裝 JFreeChart 的 ChartPanel，讓圖表在 JavaFX 場景中渲染。
-    // 目的：根據 candles 資料動態生成線圖（X 軸：日期，Y 軸：收盤價），支援滾動和 tooltip。
-    private Node createLineChart(List<Candle> candles) {
-        // 創建 SwingNode：JavaFX-Swing 橋接器，用來將 Swing 組件（如 JFreeChart 的 ChartPanel）嵌入 JavaFX 場景圖中。
-        // JFreeChart 是基於 Swing 的圖表庫，需嵌入到 JavaFX 的 ScrollPane 中渲染。
-        SwingNode swingNode = new SwingNode();
-
-        // SwingUtilities.invokeLater(Runnable)：Swing 框架的執行緒工具，確保以下代碼在 Swing 的 EDT (Event Dispatch Thread) 中運行。
-        // 目的：JFreeChart 的 chart 建構和 repaint 必須在 EDT，避免 "IllegalComponentStateException" 或渲染錯誤。
-        // 這是混合 UI (JavaFX + Swing) 的標準實務，類似 JavaFX 的 Platform.runLater() 但針對 Swing。
-        SwingUtilities.invokeLater(() -> {
-            // DefaultCategoryDataset：JFreeChart 的資料集類別，用於類別型資料（如 X=日期字符串，Y=數值），支援多系列。
-            // 日期是離散類別（非連續時間），CategoryAxis 只顯示有資料的點，解決假日空白問題。
-            DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-            // SimpleDateFormat：Java 文字處理 API，用來格式化 LocalDate 為字符串（X 軸標籤）。
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-
-            // 迴圈填充 dataset：從 candles List 迭代，每個 Candle 轉日期字符串 + 收盤價。
-            // 目的：建 X=日期類別，Y=close 數值系列 "收盤價走勢"。
-            for (int i = 0; i < candles.size(); i++) {
-                Candle c = candles.get(i);  // 取得單日 Candle 記錄（從 Fugle API 解析）
-                LocalDate localDate = c.date();  // Candle date() 返回 LocalDate - Java 時間 API，不可變日期
-
-                // Date.from(Instant)：橋接 LocalDate 到舊 Date API（JFreeChart 需 Date 格式化）。
-                // atStartOfDay(ZoneId.systemDefault())：加時區轉 Instant（台灣時間）。
-                String dateStr = sdf.format(Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
-
-                dataset.addValue(c.close(), "收盤價走勢", dateStr);  // 用日期字符串作為類別（X 軸標籤），Y 為 close 收盤價
-            }
-
-            // JFreeChart 核心工廠，生成線圖（CategoryPlot 類型）。
-            JFreeChart chart = ChartFactory.createLineChart("近 " + candles.size() + " 日 K 線 (收盤價)", "日期", "價格（元）", dataset, PlotOrientation.VERTICAL, true, true, false);
-            
-            // 切換字型以利解決亂碼問題
-            Font font = new Font("Microsoft YaHei", Font.BOLD, 14);  // "Microsoft YaHei"：Windows 中文字體，BOLD 加粗，14pt 大小
-
-            // TextTitle：JFreeChart 標題類別，取得並自訂圖表標題字體。
-            TextTitle title = chart.getTitle();
-            title.setFont(font);
-
-            // CategoryPlot：JFreeChart 繪圖區域，處理 CategoryDataset 的線圖。
-            // chart.getPlot()：強轉 plot 為 CategoryPlot。
-            CategoryPlot plot = (CategoryPlot) chart.getPlot();  // [新增]：取得 CategoryPlot
-            plot.getDomainAxis().setLabelFont(font);  // X 軸字體（"日期"）
-            plot.getRangeAxis().setLabelFont(font);  // Y 軸字體（"價格（元）"）
-            
-            // Y 軸範圍動態調整（根據資料 min/max，類似 before 的行為，避免從 0 開始）
-            // candles.stream().mapToDouble(Candle::close).min().orElse(0.0)：Stream API 計算收盤價最小值（method reference Candle::close）。
-            double minClose = candles.stream().mapToDouble(Candle::close).min().orElse(0.0); // minClose：資料中的最小收盤價
-            double maxClose = candles.stream().mapToDouble(Candle::close).max().orElse(0.0);  // maxClose：資料中最大收盤價
-            double padding = (maxClose - minClose) * 0.05;  // 5% 緩衝空間（padding）：Y 軸上下留白，避免線貼邊
-
-            // getRangeAxis()：Y 軸 ValueAxis，setLowerBound / setUpperBound 動態設範圍。
-            plot.getRangeAxis().setLowerBound(Math.max(0, minClose - padding));  // 下限：min - padding，但不低於 0（股票價 >0）
-            plot.getRangeAxis().setUpperBound(maxClose + padding);  // 上限：max + padding
-
-            // LineAndShapeRenderer：CategoryPlot 的渲染器，控制線條/點/標籤樣式。
-            LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();  // 強轉 renderer 為線圖類型
-            renderer.setSeriesItemLabelFont(0, font);  // （"收盤價走勢"）套中文字體
-
-            // setSeriesToolTipGenerator(int series, CategoryToolTipGenerator generator)：為系列設定 tooltip 生成器（hover 提示）。
-            // CategoryToolTipGenerator：介面，generateToolTip(CategoryDataset dataset, int row, int column) 返回字符串。
-            // 目的：hover 點時顯示 "日期: 價格"，用完整日期避免年份歧義。
-            renderer.setSeriesToolTipGenerator(0, (dataset1, row, column) -> {  // [修改]：tooltip 顯示日期/價格（CategoryDataset 版本）
-                String category = (String) dataset1.getColumnKey(column);
-                double y = dataset1.getValue(row, column).doubleValue();
-                return category + ": " + y;  // 格式化 tooltip "2025-11-03: 1510.0"
-            });
-            
-            // 系列名稱 "收盤價走勢" 字體防亂碼（JFreeChart 系列名稱在圖例顯示）
-            // getLegend()：圖表圖例，setItemFont 套字體到所有項目。
-            chart.getLegend().setItemFont(font);  // [新增]：將中文字體套用到圖例所有項目，解決系列名稱亂碼
-            
-            // CategoryAxis：X 軸類別軸，處理日期標籤位置。
-            CategoryAxis domainAxis = (CategoryAxis) plot.getDomainAxis();
-            domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);  // 日期標籤垂直顯示（UP_90），避免擁擠（依需調整為 STANDARD 或 DOWN_90）
-
-            currentChartPanel = new ChartPanel(chart);  // ChartPanel：JFreeChart 的 Swing 面板容器，包裝 chart 支援互動（zoom、tooltip）。
-            int dynamicWidth = Math.max(800, candles.size() * 160);  // 加大倍率到 160 px/點（你的測試 160 勉強OK），10 日 ~1600px、20 日 ~3200px 自適應（確保最後日期全顯示，無切斷）
-            currentChartPanel.setPreferredSize(new java.awt.Dimension(695, 400));  // 寬動態，高固定 400px
-            swingNode.setContent(currentChartPanel);
-
-            // Timer：Swing 的計時器，單次延遲 200ms 觸發 ActionListener。
-            // 目的：解決 SwingNode 嵌入 JavaFX 時的初始渲染延遲（社區常見 bug，JFreeChart 需要時間初始化 plot）。
-            Timer timer = new Timer(200, e -> {
-                currentChartPanel.revalidate();
-                currentChartPanel.repaint();
-                ((Timer) e.getSource()).stop();
-            });
-            timer.setRepeats(false);
-            timer.start();
-        });
-        
-        return swingNode;
+    // 顯示常駐圖表：Canvas 不需要等待 Swing 初始化，換上後立即顯示
+    private void showChart(Region chart) {
+        currentChart = chart;
+        chartPane.setContent(chart);
+        resizeChartProportionally(); // 改用統一的等比例縮放方法
+        chartPane.setVisible(true);
     }
 
-    // 創建 RSI 線圖（複製自 createLineChart 並調整）
-    private Node createRSIChart(List<RSI> rsiList) {
-        SwingNode swingNode = new SwingNode();
+    // 歷史 K 線圖（K 棒 + 成交量，X 軸為日期軸）：直接引用 CandleSeries 的陣列繪製，不複製資料
+    // Y 軸範圍由圖表依可見的最高／最低價決定（縮放、平移時跟著調整）
+    private void updateCandleChart(CandleSeries candles) {
+        if (historyChart == null) {
+            historyChart = new CandleChart();
+        }
+        historyChart.setCandles("近 " + candles.size() + " 日 K 線", candles);
+    }
 
-        SwingUtilities.invokeLater(() -> {
-            DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+    // RSI 線圖
+    private void updateRSIChart(List<RSI> rsiList) {
+        if (rsiChart == null) {
+            rsiChart = new CanvasChart("日期", "RSI 值 (0-100)");
+        }
 
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        List<String> dates = new ArrayList<>(rsiList.size());
+        double[] values = new double[rsiList.size()];
+        for (int i = 0; i < rsiList.size(); i++) {
+            dates.add(rsiList.get(i).date().toString());
+            values[i] = rsiList.get(i).rsi();
+        }
 
-            for (int i = 0; i < rsiList.size(); i++) {
-                RSI r = rsiList.get(i);
-                LocalDate localDate = r.date();
+        // Y 軸範圍動態調整（RSI 通常 0-100，padding 5%）
+        double minRsi = rsiList.stream().mapToDouble(RSI::rsi).min().orElse(0.0);
+        double maxRsi = rsiList.stream().mapToDouble(RSI::rsi).max().orElse(100.0);
+        double padding = (maxRsi - minRsi) * 0.05;
+        rsiChart.setLines("近 " + rsiList.size() + " 日 RSI 指標", dates,
+                List.of(new CanvasChart.Line("RSI 指標", Color.rgb(31, 119, 180), 1.5, values)),
+                Math.max(0, minRsi - padding), Math.min(100, maxRsi + padding));
+    }
 
-                String dateStr = sdf.format(Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    // MACD 線圖（兩系列：MACD 線紅色、信號線藍色）
+    private void updateMACDChart(List<MACD> macdList) {
+        if (macdChart == null) {
+            macdChart = new CanvasChart("日期", "MACD 值");
+        }
 
-                dataset.addValue(r.rsi(), "RSI 指標", dateStr);  // 用日期字符串作為類別（X 軸標籤），Y 為 rsi 值
-            }
+        List<String> dates = new ArrayList<>(macdList.size());
+        double[] macdLine = new double[macdList.size()];
+        double[] signalLine = new double[macdList.size()];
+        for (int i = 0; i < macdList.size(); i++) {
+            MACD m = macdList.get(i);
+            dates.add(m.date().toString());
+            macdLine[i] = m.macdLine();
+            signalLine[i] = m.signalLine();
+        }
 
-            JFreeChart chart = ChartFactory.createLineChart("近 " + rsiList.size() + " 日 RSI 指標", "日期", "RSI 值 (0-100)", dataset, PlotOrientation.VERTICAL, true, true, false);
-            
-            Font font = new Font("Microsoft YaHei", Font.BOLD, 14);
-
-            TextTitle title = chart.getTitle();
-            title.setFont(font);
-
-            CategoryPlot plot = (CategoryPlot) chart.getPlot();
-            plot.getDomainAxis().setLabelFont(font);
-            plot.getRangeAxis().setLabelFont(font);
-            
-            // Y 軸範圍動態調整（RSI 通常 0-100，padding 5%）
-            double minRsi = rsiList.stream().mapToDouble(RSI::rsi).min().orElse(0.0);
-            double maxRsi = rsiList.stream().mapToDouble(RSI::rsi).max().orElse(100.0);
-            double padding = (maxRsi - minRsi) * 0.05;
-
-            plot.getRangeAxis().setLowerBound(Math.max(0, minRsi - padding));
-            plot.getRangeAxis().setUpperBound(Math.min(100, maxRsi + padding));
-
-            LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
-            renderer.setSeriesItemLabelFont(0, font);
-
-            renderer.setSeriesToolTipGenerator(0, (dataset1, row, column) -> {
-                String category = (String) dataset1.getColumnKey(column);
-                double y = dataset1.getValue(row, column).doubleValue();
-                return category + ": " + y;
-            });
-            
-            chart.getLegend().setItemFont(font);
-            
-            CategoryAxis domainAxis = (CategoryAxis) plot.getDomainAxis();
-            domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
-
-            currentChartPanel = new ChartPanel(chart);
-            currentChartPanel.setPreferredSize(new java.awt.Dimension(695, 400));
-            swingNode.setContent(currentChartPanel);
-
-            Timer timer = new Timer(200, e -> {
-                currentChartPanel.revalidate();
-                currentChartPanel.repaint();
-                ((Timer) e.getSource()).stop();
-            });
-            timer.setRepeats(false);
-            timer.start();
-        });
-        
-        return swingNode;
+        // Y 軸範圍動態調整（基於 MACD 線 min/max，padding 5%）
+        double minMacd = macdList.stream().mapToDouble(MACD::macdLine).min().orElse(0.0);
+        double maxMacd = macdList.stream().mapToDouble(MACD::macdLine).max().orElse(0.0);
+        double padding = (maxMacd - minMacd) * 0.05;
+        macdChart.setLines("近 " + macdList.size() + " 日 MACD 指標", dates,
+                List.of(new CanvasChart.Line("MACD 線", Color.RED, 1.5, macdLine),
+                        new CanvasChart.Line("信號線", Color.BLUE, 1.5, signalLine)),
+                minMacd - padding, maxMacd + padding);
     }
 
-    // 創建 MACD 線圖（複製自 createRSIChart 並調整為兩系列）
-    private Node createMACDChart(List<MACD> macdList) {
-        SwingNode swingNode = new SwingNode();
-
-        SwingUtilities.invokeLater(() -> {
-            DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+    // 日期清單以「、」串接（依清單原本順序，即最舊在前）
+    private static String joinDates(List<LocalDate> dates) {
+        StringJoiner joiner = new StringJoiner("、");
+        for (LocalDate date : dates) {
+            joiner.add(date.toString());
+        }
+        return joiner.toString();
+    }
 
-            for (int i = 0; i < macdList.size(); i++) {
-                MACD m = macdList.get(i);
-                LocalDate localDate = m.date();
+    // 日期清單以「、」串接，從最新到最舊
+    private static String joinDatesNewestFirst(List<LocalDate> dates) {
+        StringJoiner joiner = new StringJoiner("、");
+        for (int i = dates.size() - 1; i >= 0; i--) {
+            joiner.add(dates.get(i).toString());
+        }
+        return joiner.toString();
+    }
 
-                String dateStr = sdf.format(Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+    // 取消尚未完成的請求（已完成的 cancel 不會有任何作用）
+    private void cancelTask(CompletableFuture<?> task) {
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
 
-                dataset.addValue(m.macdLine(), "MACD 線", dateStr);  // 系列 0：MACD 線
-                dataset.addValue(m.signalLine(), "信號線", dateStr);  // 系列 1：信號線
+    // task 被取消時一併取消它等待的來源請求（cancel task 本身不會往上游傳）
+    // FugleService 只有在沒有其他畫面共用同一個請求時才會真的中止連線
+    private static void cancelWith(CompletableFuture<?> task, CompletableFuture<?>... sources) {
+        task.whenComplete((v, ex) -> {
+            if (task.isCancelled()) {
+                for (CompletableFuture<?> source : sources) {
+                    source.cancel(true);
+                }
             }
-
-            JFreeChart chart = ChartFactory.createLineChart("近 " + macdList.size() + " 日 MACD 指標", "日期", "MACD 值", dataset, PlotOrientation.VERTICAL, true, true, false);
-            
-            Font font = new Font("Microsoft YaHei", Font.BOLD, 14);
-
-            TextTitle title = chart.getTitle();
-            title.setFont(font);
-
-            CategoryPlot plot = (CategoryPlot) chart.getPlot();
-            plot.getDomainAxis().setLabelFont(font);
-            plot.getRangeAxis().setLabelFont(font);
-            
-            // Y 軸範圍動態調整（基於 MACD 線 min/max，padding 5%）
-            double minMacd = macdList.stream().mapToDouble(MACD::macdLine).min().orElse(0.0);
-            double maxMacd = macdList.stream().mapToDouble(MACD::macdLine).max().orElse(0.0);
-            double padding = (maxMacd - minMacd) * 0.05;
-
-            plot.getRangeAxis().setLowerBound(minMacd - padding);
-            plot.getRangeAxis().setUpperBound(maxMacd + padding);
-
-            LineAndShapeRenderer renderer = (LineAndShapeRenderer) plot.getRenderer();
-            renderer.setSeriesItemLabelFont(0, font);  // MACD 線字體
-            renderer.setSeriesItemLabelFont(1, font);  // 信號線字體
-
-            // 設定線條顏色：系列 0 (MACD) 紅色，系列 1 (信號線) 藍色
-            renderer.setSeriesPaint(0, Color.RED);
-            renderer.setSeriesPaint(1, Color.BLUE);
-
-            // Tooltip：顯示日期 + 各系列值
-            renderer.setSeriesToolTipGenerator(0, (dataset1, row, column) -> {
-                String category = (String) dataset1.getColumnKey(column);
-                double macdVal = dataset1.getValue(0, column).doubleValue();  // 系列 0
-                double signalVal = dataset1.getValue(1, column).doubleValue();  // 系列 1
-                return String.format("%s: MACD=%.2f, Signal=%.2f", category, macdVal, signalVal);
-            });
-            renderer.setSeriesToolTipGenerator(1, (dataset1, row, column) -> {
-                // 信號線 tooltip 同上（避免重複）
-                String category = (String) dataset1.getColumnKey(column);
-                double macdVal = dataset1.getValue(0, column).doubleValue();
-                double signalVal = dataset1.getValue(1, column).doubleValue();
-                return String.format("%s: MACD=%.2f, Signal=%.2f", category, macdVal, signalVal);
-            });
-            
-            chart.getLegend().setItemFont(font);
-            
-            CategoryAxis domainAxis = (CategoryAxis) plot.getDomainAxis();
-            domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
-
-            currentChartPanel = new ChartPanel(chart);
-            currentChartPanel.setPreferredSize(new java.awt.Dimension(695, 400));
-            swingNode.setContent(currentChartPanel);
-
-            Timer timer = new Timer(200, e -> {
-                currentChartPanel.revalidate();
-                currentChartPanel.repaint();
-                ((Timer) e.getSource()).stop();
-            });
-            timer.setRepeats(false);
-            timer.start();
         });
-        
-        return swingNode;
     }
 
-    // 創建空圖表面板
-    private Node createEmptyChartPanel() {
-        SwingNode swingNode = new SwingNode();
-        SwingUtilities.invokeLater(() -> {
-            DefaultCategoryDataset emptyDataset = new DefaultCategoryDataset();
-            JFreeChart emptyChart = ChartFactory.createLineChart(" ", " ", " ", emptyDataset);
-            swingNode.setContent(new ChartPanel(emptyChart));
-        });
-        return swingNode;
+    // 判斷例外是否來自 cancelTask（CompletableFuture 會把 CancellationException 包在 CompletionException 裡）
+    private boolean isCancellation(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof CancellationException;
     }
 
     // 顯示警示（ERROR 型）
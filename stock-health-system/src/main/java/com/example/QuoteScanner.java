@@ -0,0 +1,98 @@
+package com.example;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// 批次查詢多檔股票的即時報價（自選股／庫存健診）
+// 以 FugleService 的非同步 API 送出請求，同時在途中的請求最多 maxConcurrent 檔：每完成一檔才補送下一檔，等待期間不佔用任何執行緒
+// 所有請求共用同一個 FugleService（也就共用同一個 OkHttpClient、連線池與速率限制），每分鐘配額由 FugleService 的令牌桶控制
+public class QuoteScanner {
+    // 單檔結果：成功時 quote 有值，失敗時 error 為錯誤訊息
+    public record Result(String symbol, Quote quote, String error) {}
+
+    private final FugleService service;
+    private final int maxConcurrent;
+
+    public QuoteScanner(FugleService service, int maxConcurrent) {
+        this.service = service;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    // 開始掃描，每完成一檔就呼叫一次 onResult（在背景執行緒上，呼叫端自行切回 UI 執行緒）
+    // 回傳值在全部完成時結束；對它呼叫 cancel 會讓尚未送出的請求直接略過，送出中的請求也一併取消
+    public CompletableFuture<Void> scan(List<String> symbols, String apiKey, Consumer<Result> onResult) {
+        CompletableFuture<Void> handle = new CompletableFuture<>();
+        if (symbols.isEmpty()) {
+            handle.complete(null);
+            return handle;
+        }
+
+        Scan scan = new Scan(List.copyOf(symbols), apiKey, onResult, handle);
+        handle.whenComplete((v, ex) -> {
+            if (handle.isCancelled()) {
+                scan.running.forEach(f -> f.cancel(true));
+            }
+        });
+        for (int i = 0; i < Math.min(maxConcurrent, symbols.size()); i++) {
+            scan.next();
+        }
+        return handle;
+    }
+
+    // 一次掃描的進度：next 取得下一檔的索引，remaining 為尚未回報結果的檔數
+    private class Scan {
+        private final List<String> symbols;
+        private final String apiKey;
+        private final Consumer<Result> onResult;
+        private final CompletableFuture<Void> handle;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final Set<CompletableFuture<Quote>> running = ConcurrentHashMap.newKeySet();  // 送出中的請求（取消掃描時一併取消）
+
+        Scan(List<String> symbols, String apiKey, Consumer<Result> onResult, CompletableFuture<Void> handle) {
+            this.symbols = symbols;
+            this.apiKey = apiKey;
+            this.onResult = onResult;
+            this.handle = handle;
+            this.remaining = new AtomicInteger(symbols.size());
+        }
+
+        // 送出下一檔；完成（成功或失敗）後回報結果並接著送下一檔
+        void next() {
+            int index = next.getAndIncrement();
+            if (index >= symbols.size() || handle.isDone()) {
+                return;  // 已全部送出，或已取消
+            }
+            String symbol = symbols.get(index);
+            CompletableFuture<Quote> request = service.fetchQuoteAsync(symbol, apiKey);
+            running.add(request);
+            if (handle.isCancelled()) {
+                request.cancel(true);  // 加入前掃描剛好被取消
+            }
+            request.handle((quote, ex) -> ex == null ? new Result(symbol, quote, null) : failure(symbol, ex))
+                    .thenAccept(result -> {
+                        running.remove(request);
+                        if (!handle.isDone()) {
+                            onResult.accept(result);
+                        }
+                        if (remaining.decrementAndGet() == 0) {
+                            handle.complete(null);
+                        } else {
+                            next();
+                        }
+                    });
+        }
+    }
+
+    private static Result failure(String symbol, Throwable ex) {
+        Throwable e = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        // fetchQuote 會把實際的 IOException 包在 RuntimeException 裡，優先顯示較具體的原因（例如 "用戶端錯誤：404"）
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return new Result(symbol, null, cause.getMessage());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// 即時報價串流（Fugle WebSocket API）：訂閱單一股票的 trades（逐筆成交）與 books（最佳五檔）頻道
+// 以 REST 查到的 Quote 為起點，每收到一筆成交或五檔更新就產生一份新的 Quote 交給 Listener，不需要反覆輪詢 /intraday/quote
+// 流程：連線 → 送出 auth → 收到 authenticated 後訂閱兩個頻道 → 持續接收 data 事件
+// Listener 在 OkHttp 的 WebSocket 執行緒上被呼叫，更新 UI 時需自行切回 JavaFX 執行緒
+public class QuoteStream {
+    public interface Listener {
+        void onQuote(Quote quote); // 每次成交或五檔變動後的最新報價
+        void onStatus(String message); // 連線狀態（已連線、已訂閱、斷線原因等）
+    }
+
+    private final ObjectMapper mapper;
+    private final String symbol;
+    private final String apiKey;
+    private final Listener listener;
+    private volatile Quote current;
+    private volatile WebSocket socket;
+    private volatile boolean closed;
+
+    QuoteStream(ObjectMapper mapper, String symbol, String apiKey, Quote initial, Listener listener) {
+        this.mapper = mapper;
+        this.symbol = symbol;
+        this.apiKey = apiKey;
+        this.current = initial;
+        this.listener = listener;
+    }
+
+    void connect(OkHttpClient client, String url) {
+        socket = client.newWebSocket(new Request.Builder().url(url).build(), new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket ws, Response response) {
+                send(ws, "auth", mapper.createObjectNode().put("apikey", apiKey));
+            }
+
+            @Override
+            public void onMessage(WebSocket ws, String text) {
+                if (!closed) {
+                    handle(ws, text);
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket ws, int code, String reason) {
+                ws.close(1000, null);
+            }
+
+            @Override
+            public void onClosed(WebSocket ws, int code, String reason) {
+                if (!closed) {
+                    listener.onStatus("即時串流已中斷（" + code + (reason.isEmpty() ? "" : "：" + reason) + "）");
+                }
+            }
+
+            @Override
+            public void onFailure(WebSocket ws, Throwable t, Response response) {
+                if (!closed) {
+                    String detail = response != null ? "HTTP " + response.code() : t.getMessage();
+                    listener.onStatus("即時串流連線失敗：" + detail);
+                }
+            }
+        });
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    public Quote current() {
+        return current;
+    }
+
+    // 主動關閉（切換股票、關掉串流或結束程式時）
+    public void close() {
+        closed = true;
+        WebSocket ws = socket;
+        if (ws != null) {
+            ws.close(1000, "client closed");
+        }
+    }
+
+    private void handle(WebSocket ws, String text) {
+        JsonNode message;
+        try {
+            message = mapper.readTree(text);
+        } catch (IOException e) {
+            return;  // 無法解析的訊息直接略過
+        }
+
+        JsonNode data = message.path("data");
+        switch (message.path("event").asText()) {
+            case "authenticated" -> {
+                subscribe(ws, "trades");
+                subscribe(ws, "books");
+            }
+            case "subscribed" -> listener.onStatus("已訂閱 " + symbol + " " + data.path("channel").asText());
+            case "data" -> {
+                if (!symbol.equals(data.path("symbol").asText(symbol))) {
+                    return;
+                }
+                Quote updated = switch (message.path("channel").asText()) {
+                    case "trades" -> withTrade(current, data);
+                    case "books" -> withBooks(current, data);
+                    default -> null;
+                };
+                if (updated != null) {
+                    current = updated;
+                    listener.onQuote(updated);
+                }
+            }
+            case "error" -> listener.onStatus("即時串流錯誤：" + data.path("message").asText());
+            default -> { }  // heartbeat、pong 等不需處理
+        }
+    }
+
+    private void subscribe(WebSocket ws, String channel) {
+        send(ws, "subscribe", mapper.createObjectNode().put("channel", channel).put("symbol", symbol));
+    }
+
+    private void send(WebSocket ws, String event, ObjectNode data) {
+        ObjectNode message = mapper.createObjectNode();
+        message.put("event", event);
+        message.set("data", data);
+        ws.send(message.toString());
+    }
+
+    // 逐筆成交：更新現價、最高／最低、累計成交量與漲跌幅（試撮的模擬成交不計入）
+    static Quote withTrade(Quote q, JsonNode trade) {
+        if (trade.path("isTrial").asBoolean(false) || !trade.hasNonNull("price")) {
+            return null;
+        }
+        double price = trade.path("price").asDouble();
+        long volume = trade.path("volume").asLong(q.tradeVolume()); // 累計成交量
+        double open = q.openPrice() == 0 ? price : q.openPrice();
+        double high = q.highPrice() == 0 ? price : Math.max(q.highPrice(), price);
+        double low = q.lowPrice() == 0 ? price : Math.min(q.lowPrice(), price);
+        double change = price - q.previousClose();
+        double changePercent = q.previousClose() == 0 ? 0 : change / q.previousClose() * 100;
+        return new Quote(q.symbol(), q.name(), q.previousClose(), open, high, low, price,
+                q.avgPrice(), volume, change, changePercent, q.bids(), q.asks());
+    }
+
+    // 最佳五檔：整組替換委買、委賣
+    static Quote withBooks(Quote q, JsonNode books) {
+        return new Quote(q.symbol(), q.name(), q.previousClose(), q.openPrice(), q.highPrice(), q.lowPrice(), q.closePrice(),
+                q.avgPrice(), q.tradeVolume(), q.change(), q.changePercent(),
+                levels(books.path("bids")), levels(books.path("asks")));
+    }
+
+    private static List<BidAsk> levels(JsonNode array) {
+        List<BidAsk> levels = new ArrayList<>();
+        for (JsonNode node : array) {
+            levels.add(new BidAsk(node.path("price").asDouble(), node.path("size").asLong()));
+        }
+        return List.copyOf(levels);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+// 區間統計（單次走訪）：最大／最小值與所有達到該值的日期、平均、標準差、最大回撤
+// 歷史 K 線、RSI、MACD、外資空口數的摘要都用同一個收集器，資料只掃一次，不必先求極值再各自過濾日期
+// 依日期遞增餵入；極值日期也依餵入順序保存（最舊在前）
+public final class RangeStats {
+    private int count;
+    private double mean;
+    private double m2; // Welford 演算法：與平均值差的平方和
+
+    private double max = Double.NaN;
+    private double min = Double.NaN;
+    private final List<LocalDate> maxDates = new ArrayList<>();
+    private final List<LocalDate> minDates = new ArrayList<>();
+
+    // 最大回撤：value 自前高點往下跌的最大幅度
+    private double peak = Double.NaN;
+    private LocalDate peakDate;
+    private double maxDrawdown;
+    private double maxDrawdownPeak = Double.NaN;
+    private LocalDate drawdownPeakDate;
+    private LocalDate drawdownTroughDate;
+
+    // 逐筆累計整個清單
+    public static <T> RangeStats of(List<T> items, Function<T, LocalDate> date, ToDoubleFunction<T> value) {
+        RangeStats stats = new RangeStats();
+        for (T item : items) {
+            stats.accept(date.apply(item), value.applyAsDouble(item));
+        }
+        return stats;
+    }
+
+    // 歷史 K 線：最高價取 high、最低價取 low，平均、標準差與回撤以收盤價計算
+    public static RangeStats ofCandles(CandleSeries candles) {
+        RangeStats stats = new RangeStats();
+        for (int i = 0; i < candles.size(); i++) {
+            stats.accept(candles.date(i), candles.high(i), candles.low(i), candles.close(i));
+        }
+        return stats;
+    }
+
+    public void accept(LocalDate date, double value) {
+        accept(date, value, value, value);
+    }
+
+    // high 參與最大值、low 參與最小值、value 參與平均／標準差／回撤
+    public void accept(LocalDate date, double high, double low, double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (count == 1 || high > max) {
+            max = high;
+            maxDates.clear();
+            maxDates.add(date);
+        } else if (high == max) {
+            maxDates.add(date);
+        }
+        if (count == 1 || low < min) {
+            min = low;
+            minDates.clear();
+            minDates.add(date);
+        } else if (low == min) {
+            minDates.add(date);
+        }
+
+        if (count == 1 || value >= peak) { // 同值的高點取較晚的日期
+            peak = value;
+            peakDate = date;
+        } else if (peak - value > maxDrawdown) {
+            maxDrawdown = peak - value;
+            maxDrawdownPeak = peak;
+            drawdownPeakDate = peakDate;
+            drawdownTroughDate = date;
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    // 空區間回傳 0，與原本 stream().max().orElse(0.0) 的行為一致
+    public double max() {
+        return count == 0 ? 0.0 : max;
+    }
+
+    public double min() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    public List<LocalDate> maxDates() {
+        return Collections.unmodifiableList(maxDates);
+    }
+
+    public List<LocalDate> minDates() {
+        return Collections.unmodifiableList(minDates);
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    // 母體標準差
+    public double stdDev() {
+        return count == 0 ? 0.0 : Math.sqrt(m2 / count);
+    }
+
+    // 最大回撤（絕對值，>= 0）；沒有下跌過時為 0
+    public double maxDrawdown() {
+        return maxDrawdown;
+    }
+
+    // 最大回撤佔當時高點的比例（%）；高點 <= 0 時（例如 MACD）比例沒有意義，回傳 NaN
+    public double maxDrawdownPercent() {
+        if (maxDrawdown == 0) {
+            return 0.0;
+        }
+        return maxDrawdownPeak > 0 ? maxDrawdown / maxDrawdownPeak * 100.0 : Double.NaN;
+    }
+
+    public LocalDate drawdownPeakDate() {
+        return drawdownPeakDate;
+    }
+
+    public LocalDate drawdownTroughDate() {
+        return drawdownTroughDate;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fugle API 的用戶端速率限制與重試
+// 速率限制：令牌桶，每分鐘補充 requestsPerMinute 個令牌、最多累積 burst 個；令牌不夠時依序排隊等待，而不是一次湧出後被 429 擋下
+//   令牌由 tokenInterceptor()（網路層攔截器）取得，只有真的要連網時才會執行，記憶體與磁碟快取命中都不消耗配額
+// 重試：本身是應用層攔截器（可以重新送出請求），429 與 5xx 最多重試 maxRetries 次，等待時間為「指數退避 + 完整抖動」
+//   伺服器有給 Retry-After 時以它為準，並暫停整個令牌桶（配額是所有請求共用的）
+final class RateLimiter implements Interceptor {
+    private static final long MAX_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(60); // Retry-After 上限，避免異常的值讓請求卡住太久
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxRetries;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+
+    // 令牌桶狀態（以 this 同步）：tokens 可以是負值，代表已預約、還在等待中的請求
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil = lastRefill; // nanoTime 只能相減比較，初始值設為「現在」即代表沒有暫停
+
+    // 統計：需要排隊等令牌的請求數、收到 429 的次數、重試次數
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    RateLimiter(AppSettings settings) {
+        int perMinute = Math.max(1, settings.getInt("fugle.rate.requests-per-minute", 60));
+        this.capacity = Math.max(1, settings.getInt("fugle.rate.burst", 5));
+        this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = capacity;
+        this.maxRetries = Math.max(0, settings.getInt("fugle.retry.max-retries", 3));
+        this.baseDelayNanos = TimeUnit.MILLISECONDS.toNanos(settings.getLong("fugle.retry.base-delay-ms", 500));
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(settings.getLong("fugle.retry.max-delay-ms", 8000));
+    }
+
+    long queuedCount() {
+        return queued.get();
+    }
+
+    long throttledCount() {
+        return throttled.get();
+    }
+
+    long retriedCount() {
+        return retried.get();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        // 離線模式（only-if-cached）不會連網，不需要令牌，也不重試
+        if (request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            Response response = chain.proceed(request);
+            int code = response.code();
+            boolean retryable = code == 429 || code >= 500;
+            if (!retryable || attempt >= maxRetries) {
+                return response;
+            }
+
+            long retryAfter = retryAfterNanos(response);
+            if (code == 429) {
+                throttled.incrementAndGet();
+                if (retryAfter > 0) {
+                    pause(retryAfter);
+                }
+            }
+            response.close();
+            retried.incrementAndGet();
+            sleep(retryAfter > 0 ? retryAfter : backoffNanos(attempt));
+        }
+    }
+
+    // 網路層攔截器：每次實際連網前取得一個令牌（每次重試也各取一個）
+    Interceptor tokenInterceptor() {
+        return chain -> {
+            acquire();
+            return chain.proceed(chain.request());
+        };
+    }
+
+    // 取得一個令牌；沒有時預約下一個，睡到輪到自己為止
+    private void acquire() throws InterruptedIOException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            tokens -= 1;
+            wait = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+            wait = Math.max(wait, pausedUntil - now);
+        }
+        if (wait > 0) {
+            queued.incrementAndGet();
+            sleep(wait);
+        }
+    }
+
+    // 收到 429 + Retry-After：在這段時間內所有請求都先暫停
+    private synchronized void pause(long nanos) {
+        long until = System.nanoTime() + nanos;
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    // 指數退避 + 完整抖動：在 0 ~ min(max, base * 2^attempt) 之間隨機取值，避免多個請求同時重試又撞在一起
+    private long backoffNanos(int attempt) {
+        long ceiling = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt, 20));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Retry-After 可以是秒數或 HTTP 日期；沒有或格式不符時回傳 0
+    private static long retryAfterNanos(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        long nanos;
+        try {
+            nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                nanos = Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos();
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+        return Math.max(0, Math.min(nanos, MAX_RETRY_AFTER_NANOS));
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待 API 配額時被取消");
+        }
+    }
+}
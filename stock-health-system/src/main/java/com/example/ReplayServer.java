@@ -0,0 +1,169 @@
+package com.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 本機回放伺服器：把 HttpRecorder 錄下的回應當成 Fugle API 與外資空口數網站，不需要網路與真正的 API Key
+// 可加上固定延遲、隨機抖動與錯誤注入（例如 429 / 503），重現慢速或不穩定的上游，用來做可重複的壓力與延遲測試
+// 對應方式：先比對 方法 + 路徑 + 查詢字串；沒有完全相同的（例如 K 線查詢的日期區間不同）再退回同一路徑最新錄下的一筆；都沒有則回應 404
+// 使用方式（回放資料夾預設沿用 capture.dir）：
+//   1. 錄製：以 -Dcapture.dir=~/stock-health-capture 啟動程式正常操作
+//   2. 回放：java -Dreplay.dir=~/stock-health-capture -Dreplay.latency-ms=200 -Dreplay.error-rate=0.1 -cp stock-health.jar com.example.ReplayServer
+//   3. 程式改以 -Dfugle.base-url=http://127.0.0.1:8089/marketdata/v1.0/stock
+//      -Dforeign-net.url=http://127.0.0.1:8089/taifexphoto.asp 啟動，所有請求都由回放伺服器回應
+public final class ReplayServer implements AutoCloseable {
+    private final Map<String, HttpRecorder.Exchange> exact = new HashMap<>(); // 方法 + 路徑?查詢字串 → 回應
+    private final Map<String, HttpRecorder.Exchange> byPath = new HashMap<>(); // 方法 + 路徑 → 最新錄下的回應
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final int errorStatus;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("replay-", 0).factory());
+
+    // 統計：回放成功、退回同路徑、找不到、注入錯誤
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong injected = new AtomicLong();
+
+    public ReplayServer(List<HttpRecorder.Exchange> exchanges, int port,
+                        long latencyMs, long jitterMs, double errorRate, int errorStatus) throws IOException {
+        for (HttpRecorder.Exchange exchange : exchanges) { // 依時間遞增，後面的蓋掉前面的
+            exact.put(exchange.method() + " " + exchange.target(), exchange);
+            byPath.put(exchange.method() + " " + pathOf(exchange.target()), exchange);
+        }
+        this.latencyMs = Math.max(0, latencyMs);
+        this.jitterMs = Math.max(0, jitterMs);
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+
+        // 只綁定本機位址；每個請求一個虛擬執行緒，延遲用 sleep 模擬也不會佔住平台執行緒
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static ReplayServer fromSettings(AppSettings settings) throws IOException {
+        Path dir = settings.getPath("replay.dir", settings.getPath("capture.dir", null));
+        if (dir == null) {
+            throw new IllegalArgumentException("請以 replay.dir（或 capture.dir）指定錄製檔所在的資料夾");
+        }
+        return new ReplayServer(HttpRecorder.loadAll(dir),
+                settings.getInt("replay.port", 8089),
+                settings.getLong("replay.latency-ms", 0),
+                settings.getLong("replay.jitter-ms", 0),
+                settings.getDouble("replay.error-rate", 0),
+                settings.getInt("replay.error-status", 503));
+    }
+
+    public static void main(String[] args) throws IOException {
+        ReplayServer server = fromSettings(AppSettings.load());
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println(server.summary());
+        }));
+        System.out.printf("回放伺服器已啟動：http://127.0.0.1:%d（%d 筆錄製回應，Ctrl+C 結束）%n", server.port(), server.exact.size());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String summary() {
+        return String.format("回放 %d 次（其中 %d 次以同路徑回應代替），找不到 %d 次，注入錯誤 %d 次",
+                served.get(), fallbacks.get(), missed.get(), injected.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange http) throws IOException {
+        try (http) {
+            String method = http.getRequestMethod();
+            String target = HttpRecorder.target(http.getRequestURI().getRawPath(), http.getRequestURI().getRawQuery());
+
+            if (!delay()) {
+                return; // 伺服器關閉中
+            }
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injected.incrementAndGet();
+                if (errorStatus == 429) {
+                    http.getResponseHeaders().set("Retry-After", "1");
+                }
+                send(http, errorStatus, "application/json", ("{\"message\":\"injected error " + errorStatus + "\"}").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            HttpRecorder.Exchange exchange = exact.get(method + " " + target);
+            if (exchange == null) {
+                exchange = byPath.get(method + " " + pathOf(target));
+                if (exchange != null) {
+                    fallbacks.incrementAndGet();
+                }
+            }
+            if (exchange == null) {
+                missed.incrementAndGet();
+                send(http, 404, "application/json", ("{\"message\":\"no recording for " + target + "\"}").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            served.incrementAndGet();
+            send(http, exchange.status(), exchange.contentType(), exchange.body());
+        }
+    }
+
+    // 固定延遲 + 0 ~ jitterMs 的隨機抖動；被中斷時回傳 false
+    private boolean delay() {
+        long wait = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (wait <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(wait);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void send(HttpExchange http, int status, String contentType, byte[] body) throws IOException {
+        if (!contentType.isEmpty()) {
+            http.getResponseHeaders().set("Content-Type", contentType);
+        }
+        http.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        if (body.length > 0) {
+            try (OutputStream out = http.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static String pathOf(String target) {
+        int query = target.indexOf('?');
+        return query < 0 ? target : target.substring(0, query);
+    }
+}